@@ -19,6 +19,10 @@
  */
 package com.codelanx.codelanxlib;
 
+import com.codelanx.codelanxlib.config.FileWatcher;
+import com.codelanx.codelanxlib.data.FileSaver;
+import com.codelanx.codelanxlib.data.SQLExecutor;
+import com.codelanx.codelanxlib.data.WriteBehindQueue;
 import com.codelanx.codelanxlib.econ.VaultProxyListener;
 import com.codelanx.codelanxlib.listener.ListenerManager;
 import com.codelanx.codelanxlib.logging.Debugger;
@@ -65,8 +69,10 @@ public class CodelanxLib extends JavaPlugin {
     }
 
     /**
-     * Releases all currently registered listeners and cancels all Scheduler
-     * tasks
+     * Releases all currently registered listeners, cancels all Scheduler
+     * tasks, flushes any open {@link WriteBehindQueue WriteBehindQueues} and
+     * pending {@link FileSaver} writes, stops the {@link FileWatcher}, and
+     * waits for pending database operations to complete
      * <br><br>
      * {@inheritDoc}
      * 
@@ -76,8 +82,12 @@ public class CodelanxLib extends JavaPlugin {
     @Override
     public void onDisable() {
         ListenerManager.release();
+        WriteBehindQueue.closeAll();
+        FileSaver.shutdown();
+        FileWatcher.stop();
         Scheduler.cancelAllTasks();
         Scheduler.getService().shutdown();
+        SQLExecutor.shutdown();
     }
 
     /**
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.config;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A snapshot of every value of an enum-based {@link Config}, resolved once
+ * into arrays indexed by each constant's ordinal. Numeric and boolean values
+ * are held in primitive arrays, so reading them is an array load with no
+ * path lookup, casting or boxing. An example usage would be:
+ * <br><br>{@code
+ * for (Entity e : entities) {
+ *     if (e.getLocation().distanceSquared(center) < MyConfig.RADIUS.asDouble()) {
+ *         //...
+ *     }
+ * }
+ * }
+ * <br><br>
+ * Snapshots are rebuilt as a whole and swapped in atomically, so a reader
+ * never sees a mix of old and new values. Setting a value through
+ * {@link Config#set(Object)} discards the snapshot, which is then rebuilt
+ * once upon the next read, so many values can be set in a row cheaply, and
+ * {@link CompiledConfig#reload()} should be called if the underlying file is
+ * changed by other means
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ * 
+ * @param <E> The enum type of the {@link Config}
+ */
+public final class CompiledConfig<E extends Enum<E> & Config> {
+
+    private static final ClassValue<CompiledConfig<?>> COMPILED = new ClassValue<CompiledConfig<?>>() {
+
+        @Override
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        protected CompiledConfig<?> computeValue(Class<?> type) {
+            return new CompiledConfig(type);
+        }
+
+    };
+    private final Class<E> type;
+    private volatile Table table;
+
+    private CompiledConfig(Class<E> type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the {@link CompiledConfig} for the passed enum class. Only one
+     * instance exists per class
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <E> The enum type of the {@link Config}
+     * @param type The enum class
+     * @return The {@link CompiledConfig} for the class
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Enum<E> & Config> CompiledConfig<E> of(Class<E> type) {
+        Validate.notNull(type, "Config class cannot be null");
+        Validate.isTrue(type.isEnum(), "Only enum Config classes can be compiled");
+        return (CompiledConfig<E>) CompiledConfig.COMPILED.get(type);
+    }
+
+    /**
+     * Returns the {@link CompiledConfig} for the enum class of the passed
+     * {@link Config} constant
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key An enum {@link Config} constant
+     * @return The relevant {@link CompiledConfig}
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static CompiledConfig<?> of(Config key) {
+        return CompiledConfig.COMPILED.get(((Enum) key).getDeclaringClass());
+    }
+
+    /**
+     * Discards the snapshot for the passed {@link Config} constant's class, so
+     * that it is rebuilt upon its next read
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The {@link Config} which was changed
+     */
+    static void refresh(Config key) {
+        if (key instanceof Enum) {
+            CompiledConfig<?> compiled = CompiledConfig.of(key);
+            //waits for any build in progress, which may predate the change
+            synchronized (compiled) {
+                compiled.table = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the passed constant as an {@code int}. Any
+     * numeric value is narrowed as needed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The {@link Config} constant
+     * @return The value, or {@code -1} if it is not set
+     * @throws ClassCastException If the value is not a number
+     */
+    public int getInt(E key) {
+        Table t = this.table();
+        int i = key.ordinal();
+        t.check(i, Table.NUMBER);
+        return t.ints[i];
+    }
+
+    /**
+     * Returns the value of the passed constant as a {@code long}. Any
+     * numeric value is converted as needed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The {@link Config} constant
+     * @return The value, or {@code -1} if it is not set
+     * @throws ClassCastException If the value is not a number
+     */
+    public long getLong(E key) {
+        Table t = this.table();
+        int i = key.ordinal();
+        t.check(i, Table.NUMBER);
+        return t.longs[i];
+    }
+
+    /**
+     * Returns the value of the passed constant as a {@code double}. Any
+     * numeric value is converted as needed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The {@link Config} constant
+     * @return The value, or {@code -1} if it is not set
+     * @throws ClassCastException If the value is not a number
+     */
+    public double getDouble(E key) {
+        Table t = this.table();
+        int i = key.ordinal();
+        t.check(i, Table.NUMBER);
+        return t.doubles[i];
+    }
+
+    /**
+     * Returns the value of the passed constant as a {@code boolean}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The {@link Config} constant
+     * @return The value, or {@code false} if it is not set
+     * @throws ClassCastException If the value is not a boolean
+     */
+    public boolean getBoolean(E key) {
+        Table t = this.table();
+        int i = key.ordinal();
+        t.check(i, Table.BOOLEAN);
+        return t.booleans[i];
+    }
+
+    /**
+     * Returns the value of the passed constant as a {@link String}, as per
+     * {@link String#valueOf(Object)}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The {@link Config} constant
+     * @return The value, or {@code null} if it is not set
+     */
+    public String getString(E key) {
+        return this.table().strings[key.ordinal()];
+    }
+
+    /**
+     * Returns the raw value of the passed constant, as it was when the
+     * snapshot was built
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The {@link Config} constant
+     * @return The value, or {@code null} if it is not set
+     */
+    public Object get(E key) {
+        return this.table().values[key.ordinal()];
+    }
+
+    /**
+     * Rebuilds the snapshot from the current values of every constant, and
+     * swaps it in atomically
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public void reload() {
+        this.table = new Table(this.type.getEnumConstants());
+    }
+
+    private Table table() {
+        Table back = this.table;
+        if (back == null) {
+            synchronized (this) {
+                back = this.table;
+                if (back == null) {
+                    back = new Table(this.type.getEnumConstants());
+                    this.table = back;
+                }
+            }
+        }
+        return back;
+    }
+
+    /**
+     * An immutable set of values, indexed by ordinal
+     *
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     */
+    private static final class Table {
+
+        private static final byte MISSING = 0;
+        private static final byte NUMBER = 1;
+        private static final byte BOOLEAN = 2;
+        private static final byte OTHER = 3;
+        private final byte[] kinds;
+        private final int[] ints;
+        private final long[] longs;
+        private final double[] doubles;
+        private final boolean[] booleans;
+        private final String[] strings;
+        private final Object[] values;
+
+        public Table(Config[] keys) {
+            int size = keys.length;
+            this.kinds = new byte[size];
+            this.ints = new int[size];
+            this.longs = new long[size];
+            this.doubles = new double[size];
+            this.booleans = new boolean[size];
+            this.strings = new String[size];
+            this.values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                Object o = keys[i].get();
+                this.values[i] = o;
+                this.strings[i] = o == null ? null : String.valueOf(o);
+                if (o instanceof Number) {
+                    Number n = (Number) o;
+                    this.kinds[i] = Table.NUMBER;
+                    this.ints[i] = n.intValue();
+                    this.longs[i] = n.longValue();
+                    this.doubles[i] = n.doubleValue();
+                } else if (o instanceof Boolean) {
+                    this.kinds[i] = Table.BOOLEAN;
+                    this.booleans[i] = (Boolean) o;
+                } else if (o == null) {
+                    this.kinds[i] = Table.MISSING;
+                    this.ints[i] = -1;
+                    this.longs[i] = -1;
+                    this.doubles[i] = -1;
+                } else {
+                    this.kinds[i] = Table.OTHER;
+                }
+            }
+        }
+
+        public void check(int index, byte kind) {
+            byte actual = this.kinds[index];
+            if (actual != kind && actual != Table.MISSING) {
+                throw new ClassCastException("Config value is not a " + (kind == Table.NUMBER ? "number" : "boolean"));
+            }
+        }
+
+    }
+
+}
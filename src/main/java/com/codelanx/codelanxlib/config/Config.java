@@ -34,7 +34,7 @@ import org.bukkit.configuration.ConfigurationSection;
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public interface Config extends PluginFile {
 
@@ -151,16 +151,111 @@ public interface Config extends PluginFile {
     }
 
     /**
-     * Sets a value in the {@link FileDataType}
+     * Returns the {@link Config} value as an {@code int}. Enum constants are
+     * read from their class's {@link CompiledConfig}, which makes this a
+     * single array load
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The value, or {@code -1} if it is not set
+     * @throws ClassCastException If the value is not a number
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    default public int asInt() {
+        if (this instanceof Enum) {
+            return ((CompiledConfig) CompiledConfig.of(this)).getInt((Enum) this);
+        }
+        Object o = this.get();
+        if (o != null && !(o instanceof Number)) {
+            throw new ClassCastException("Config value is not a number");
+        }
+        return o == null ? -1 : ((Number) o).intValue();
+    }
+
+    /**
+     * Returns the {@link Config} value as a {@code long}. Enum constants are
+     * read from their class's {@link CompiledConfig}, which makes this a
+     * single array load
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The value, or {@code -1} if it is not set
+     * @throws ClassCastException If the value is not a number
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    default public long asLong() {
+        if (this instanceof Enum) {
+            return ((CompiledConfig) CompiledConfig.of(this)).getLong((Enum) this);
+        }
+        Object o = this.get();
+        if (o != null && !(o instanceof Number)) {
+            throw new ClassCastException("Config value is not a number");
+        }
+        return o == null ? -1 : ((Number) o).longValue();
+    }
+
+    /**
+     * Returns the {@link Config} value as a {@code double}. Enum constants are
+     * read from their class's {@link CompiledConfig}, which makes this a
+     * single array load
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The value, or {@code -1} if it is not set
+     * @throws ClassCastException If the value is not a number
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    default public double asDouble() {
+        if (this instanceof Enum) {
+            return ((CompiledConfig) CompiledConfig.of(this)).getDouble((Enum) this);
+        }
+        Object o = this.get();
+        if (o != null && !(o instanceof Number)) {
+            throw new ClassCastException("Config value is not a number");
+        }
+        return o == null ? -1 : ((Number) o).doubleValue();
+    }
+
+    /**
+     * Returns the {@link Config} value as a {@code boolean}. Enum constants
+     * are read from their class's {@link CompiledConfig}, which makes this a
+     * single array load
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The value, or {@code false} if it is not set
+     * @throws ClassCastException If the value is not a boolean
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    default public boolean asBoolean() {
+        if (this instanceof Enum) {
+            return ((CompiledConfig) CompiledConfig.of(this)).getBoolean((Enum) this);
+        }
+        Object o = this.get();
+        if (o != null && !(o instanceof Boolean)) {
+            throw new ClassCastException("Config value is not a boolean");
+        }
+        return o != null && (Boolean) o;
+    }
+
+    /**
+     * Sets a value in the {@link FileDataType}, and discards any
+     * {@link CompiledConfig} snapshot of this enum so that it is rebuilt upon
+     * its next read
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @param val The value to set
      * @return The previous {@link Config} value
      */
     default public Config set(Object val) {
         this.getConfig().set(this.getPath(), val);
+        CompiledConfig.refresh(this);
         return this;
     }
 
@@ -29,7 +29,7 @@ import com.codelanx.codelanxlib.data.FileDataType;
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  * 
  * @param <D> The type of the relevant {@link FileDataType}
  */
@@ -70,4 +70,33 @@ public class DataHolder<D extends FileDataType> {
         return this.value;
     }
 
+    /**
+     * Replaces the underlying {@link FileDataType}. Readers see either the
+     * old or the new value, and never block upon the swap
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The new {@link FileDataType}
+     * @return The previous {@link FileDataType}, or {@code null} if it was
+     *         never initialized
+     */
+    public synchronized D swap(D value) {
+        D old = this.value;
+        this.value = value;
+        return old;
+    }
+
+    /**
+     * Returns the class of {@link FileDataType} held by this holder
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The {@link FileDataType} class
+     */
+    public Class<D> getDataClass() {
+        return this.dataClass;
+    }
+
 }
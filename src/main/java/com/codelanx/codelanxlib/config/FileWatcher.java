@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.config;
+
+import com.codelanx.codelanxlib.data.FileDataType;
+import com.codelanx.codelanxlib.data.SQLExecutor;
+import com.codelanx.codelanxlib.events.FileReloadEvent;
+import com.codelanx.codelanxlib.logging.Debugger;
+import com.codelanx.codelanxlib.util.Reflections;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import org.apache.commons.lang.Validate;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Watches the files of {@link PluginFile} classes for changes made on disk,
+ * and reloads them in the background. A changed file is re-parsed once it
+ * has been quiet for a short moment, and is checked against the defaults of
+ * its {@link PluginFile}: any missing values are filled in with their
+ * defaults, while a file which cannot be parsed, or which holds a value of
+ * the wrong type for a key, is rejected, leaving the previous data in place. A valid file is swapped into
+ * its {@link DataHolder} in one step, so readers never block or see a
+ * partially loaded file, and a {@link FileReloadEvent} is then fired upon the
+ * main thread. An example usage would be:
+ * <br><br>{@code
+ * FileWatcher.watch(MyConfig.SOME_VALUE);
+ * }
+ * <br><br>
+ * Changes made in memory and not yet saved are lost when the file is
+ * reloaded. Saves made through {@link PluginFile#save()} or
+ * {@link PluginFile#saveAsync()} are recognized and do not cause a reload
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public final class FileWatcher {
+
+    private static final long QUIET_MILLIS = 250;
+    private static final Map<Path, Watched> WATCHED = new ConcurrentHashMap<>();
+    private static final Map<Path, WatchKey> DIRECTORIES = new HashMap<>();
+    private static WatchService service;
+    private static Thread thread;
+
+    private FileWatcher() {
+    }
+
+    /**
+     * Starts watching the file of the passed {@link PluginFile}'s class. Any
+     * constant of the class may be passed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param file A {@link PluginFile} constant of the class to watch
+     * @throws IOException If the file's directory could not be watched
+     */
+    public static synchronized void watch(PluginFile file) throws IOException {
+        Validate.notNull(file, "PluginFile cannot be null");
+        Path path = FileWatcher.locate(file);
+        if (FileWatcher.WATCHED.containsKey(path)) {
+            return;
+        }
+        if (FileWatcher.service == null) {
+            FileWatcher.service = FileSystems.getDefault().newWatchService();
+            FileWatcher.thread = new Thread(FileWatcher::run, "CodelanxLib-FileWatcher");
+            FileWatcher.thread.setDaemon(true);
+            FileWatcher.thread.start();
+        }
+        Path dir = path.getParent();
+        if (!FileWatcher.DIRECTORIES.containsKey(dir)) {
+            FileWatcher.DIRECTORIES.put(dir, dir.register(FileWatcher.service,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+        }
+        Watched w = new Watched(file, path);
+        w.crc = FileWatcher.checksum(path);
+        FileWatcher.WATCHED.put(path, w);
+    }
+
+    /**
+     * Stops watching the file of the passed {@link PluginFile}'s class
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param file A {@link PluginFile} constant of the class to stop watching
+     */
+    public static synchronized void unwatch(PluginFile file) {
+        Path path = FileWatcher.locate(file);
+        if (FileWatcher.WATCHED.remove(path) == null) {
+            return;
+        }
+        Path dir = path.getParent();
+        if (FileWatcher.WATCHED.keySet().stream().noneMatch(p -> dir.equals(p.getParent()))) {
+            WatchKey key = FileWatcher.DIRECTORIES.remove(dir);
+            if (key != null) {
+                key.cancel();
+            }
+        }
+    }
+
+    /**
+     * Stops watching all files, and stops the watcher thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public static synchronized void stop() {
+        FileWatcher.WATCHED.clear();
+        FileWatcher.DIRECTORIES.clear();
+        if (FileWatcher.service != null) {
+            try {
+                FileWatcher.service.close();
+            } catch (IOException ex) {
+                Debugger.error(ex, "Error closing file watcher");
+            }
+            FileWatcher.service = null;
+            FileWatcher.thread = null;
+        }
+    }
+
+    /**
+     * Reloads the file of the passed {@link PluginFile}'s class immediately,
+     * if it has changed since it was last loaded. The file need not be
+     * watched
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param file A {@link PluginFile} constant of the class to reload
+     * @return {@code true} if new data was swapped in
+     */
+    public static boolean reload(PluginFile file) {
+        Path path = FileWatcher.locate(file);
+        Watched w = FileWatcher.WATCHED.get(path);
+        return FileWatcher.reload(w != null ? w : new Watched(file, path));
+    }
+
+    /**
+     * Records that the file of the passed {@link PluginFile} was written by
+     * the plugin itself, so that the write is not treated as an outside
+     * change
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param file The {@link PluginFile} which was saved
+     */
+    static void saved(PluginFile file) {
+        if (FileWatcher.WATCHED.isEmpty()) {
+            return;
+        }
+        Path path = FileWatcher.locate(file);
+        Watched w = FileWatcher.WATCHED.get(path);
+        if (w != null) {
+            w.crc = FileWatcher.checksum(path);
+        }
+    }
+
+    private static void run() {
+        Map<Path, Long> due = new HashMap<>();
+        WatchService ws;
+        synchronized (FileWatcher.class) {
+            ws = FileWatcher.service;
+        }
+        while (ws != null) {
+            try {
+                long now = System.currentTimeMillis();
+                long wait = due.values().stream().mapToLong(l -> l - now).min().orElse(1000);
+                WatchKey key = ws.poll(Math.max(1, wait), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    Path dir = (Path) key.watchable();
+                    for (WatchEvent<?> ev : key.pollEvents()) {
+                        if (ev.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            FileWatcher.WATCHED.keySet().stream().filter(p -> dir.equals(p.getParent()))
+                                    .forEach(p -> due.put(p, System.currentTimeMillis() + FileWatcher.QUIET_MILLIS));
+                            continue;
+                        }
+                        Path changed = dir.resolve((Path) ev.context());
+                        if (FileWatcher.WATCHED.containsKey(changed)) {
+                            due.put(changed, System.currentTimeMillis() + FileWatcher.QUIET_MILLIS);
+                        }
+                    }
+                    key.reset();
+                }
+                long time = System.currentTimeMillis();
+                for (Iterator<Map.Entry<Path, Long>> itr = due.entrySet().iterator(); itr.hasNext();) {
+                    Map.Entry<Path, Long> ent = itr.next();
+                    if (ent.getValue() <= time) {
+                        itr.remove();
+                        Watched w = FileWatcher.WATCHED.get(ent.getKey());
+                        if (w != null) {
+                            FileWatcher.reload(w);
+                        }
+                    }
+                }
+            } catch (ClosedWatchServiceException | InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                Debugger.error(ex, "Error in file watcher");
+            }
+            synchronized (FileWatcher.class) {
+                if (FileWatcher.service != ws) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses, validates and swaps in the current contents of a file
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param w The file to reload
+     * @return {@code true} if new data was swapped in
+     */
+    private static boolean reload(Watched w) {
+        long crc = FileWatcher.checksum(w.path);
+        if (crc == w.crc || !Files.exists(w.path)) {
+            return false;
+        }
+        DataHolder<? extends FileDataType> holder = w.file.getData();
+        FileDataType data = FileWatcher.swap(holder, w);
+        if (data == null) {
+            return false;
+        }
+        w.crc = crc;
+        if (w.file instanceof Lang) {
+            LangBundle.invalidate(((Lang) w.file).getClass());
+        }
+        for (PluginFile key : FileWatcher.keys(w.file)) {
+            if (key instanceof Config) {
+                CompiledConfig.refresh((Config) key);
+                break;
+            }
+        }
+        File f = w.path.toFile();
+        SQLExecutor.mainThread().execute(() -> {
+            Bukkit.getServer().getPluginManager().callEvent(new FileReloadEvent(Reflections.getPlugin(w.file.getClass()), w.file.getClass(), f, data));
+        });
+        return true;
+    }
+
+    private static <D extends FileDataType> D swap(DataHolder<D> holder, Watched w) {
+        File f = w.path.toFile();
+        D data = FileDataType.newInstance(holder.getDataClass(), f);
+        if (data == null || FileWatcher.failed(data, f)) {
+            return null;
+        }
+        try {
+            for (PluginFile key : FileWatcher.keys(w.file)) {
+                Object value = data.get(key.getPath());
+                if (value == null) {
+                    data.set(key.getPath(), key.getDefault());
+                } else if (!FileWatcher.compatible(key.getDefault(), value)) {
+                    Debugger.print(Level.WARNING, "Not reloading '%s': '%s' should be of type %s",
+                            f.getPath(), key.getPath(), key.getDefault().getClass().getSimpleName());
+                    return null;
+                }
+            }
+        } catch (RuntimeException ex) {
+            Debugger.error(ex, "Not reloading '%s': the file could not be read", f.getPath());
+            return null;
+        }
+        if (FileWatcher.failed(data, f)) {
+            //Lazily decoded types may only fail upon reading the values
+            return null;
+        }
+        holder.swap(data);
+        return data;
+    }
+
+    /**
+     * Returns whether the passed data failed to load from its file. Such data
+     * is empty rather than missing, and so must not be filled with defaults
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param data The loaded {@link FileDataType}
+     * @param f The file it was loaded from
+     * @return {@code true} if the data should not be swapped in
+     */
+    private static boolean failed(FileDataType data, File f) {
+        if (data.getLoadError() == null) {
+            return false;
+        }
+        Debugger.print(Level.WARNING, "Not reloading '%s': the file could not be parsed (%s)",
+                f.getPath(), data.getLoadError().getMessage());
+        return true;
+    }
+
+    /**
+     * Returns whether a loaded value can stand in for a key's default
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param def The default value of the key
+     * @param value The loaded value
+     * @return {@code true} if the value is usable
+     */
+    private static boolean compatible(Object def, Object value) {
+        if (def == null || def instanceof String || def.getClass().isInstance(value)) {
+            return true;
+        } else if (def instanceof Number) {
+            return value instanceof Number;
+        } else if (def instanceof Collection) {
+            return value instanceof Collection;
+        } else if (def instanceof Map) {
+            return value instanceof Map || value instanceof ConfigurationSection;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Iterable<? extends PluginFile> keys(PluginFile file) {
+        Class<? extends PluginFile> me = file.getClass();
+        if (me.isEnum()) {
+            return Arrays.asList(me.getEnumConstants());
+        } else if (file instanceof Enum) {
+            return Arrays.asList(((Enum<?>) file).getDeclaringClass().asSubclass(PluginFile.class).getEnumConstants());
+        } else if (file instanceof Iterable) {
+            return (Iterable<? extends PluginFile>) file;
+        }
+        return Arrays.asList(file);
+    }
+
+    private static Path locate(PluginFile file) {
+        return PluginFile.getFileLocation(file.getClass()).getAbsoluteFile().toPath().normalize();
+    }
+
+    private static long checksum(Path path) {
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(Files.readAllBytes(path));
+            return crc.getValue();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    private static final class Watched {
+
+        private final PluginFile file;
+        private final Path path;
+        private volatile long crc = -1;
+
+        public Watched(PluginFile file, Path path) {
+            this.file = file;
+            this.path = path;
+        }
+
+    }
+
+}
@@ -22,6 +22,14 @@ package com.codelanx.codelanxlib.config;
 import com.codelanx.codelanxlib.data.FileDataType;
 import com.codelanx.codelanxlib.implementers.Formatted;
 import com.codelanx.codelanxlib.internal.InternalLang;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.OfflinePlayer;
@@ -32,11 +40,15 @@ import org.bukkit.plugin.Plugin;
 /**
  * Represents a single value that is dynamically retrieved from a
  * {@link FileDataType}. This value should be usable with a Formatter and
- * is typically implemented through an enum
+ * is typically implemented through an enum. Messages are parsed once into
+ * cached templates rather than upon every format. Translations are read from
+ * locale files next to the default file (e.g. {@code lang_de_de.yml} for
+ * {@code lang.yml}), and are picked from a player's client locale when
+ * sending messages
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public interface Lang extends PluginFile {
 
@@ -80,31 +92,80 @@ public interface Lang extends PluginFile {
         return String.valueOf(PluginFile.super.get());
     }
 
+    /**
+     * Returns this {@link Lang} translated to the passed locale. The locale's
+     * file is loaded upon its first use and shared across all constants of
+     * this class. If there is no file for the locale, or it does not contain
+     * this message, this {@link Lang} is returned unchanged
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param locale The locale to translate to, such as {@code de_de}. May be
+     *               {@code null}
+     * @return A {@link Lang} for the translated message
+     */
+    default public Lang localize(String locale) {
+        String value = LangBundle.lookup(this, locale == null ? null : locale.toLowerCase(Locale.ENGLISH));
+        if (value == null) {
+            return this;
+        }
+        Lang parent = this;
+        return new Lang() {
+
+            @Override
+            public Lang getFormat() {
+                return parent.getFormat().localize(locale);
+            }
+
+            @Override
+            public String getDefault() {
+                return value;
+            }
+
+            @Override
+            public String getPath() {
+                return parent.getPath();
+            }
+
+            @Override
+            public FileDataType getConfig() {
+                return parent.getConfig();
+            }
+
+            @Override
+            public DataHolder<? extends FileDataType> getData() {
+                return parent.getData();
+            }
+
+        };
+    }
+
     /**
      * Formats a {@link Lang} enum constant with the supplied arguments, and
      * colors it
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param args The arguments to supply
      * @return The formatted string
      */
     default public String formatAndColor(Object... args) {
-        return Lang.color(this.format(args));
+        return LangTemplate.of(this.get()).formatAndColor(args);
     }
 
     /**
      * Formats a {@link Lang} enum constant with the supplied arguments
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param args The arguments to supply
      * @return The formatted string
      */
     default public String format(Object... args) {
-        return String.format(this.get(), args);
+        return LangTemplate.of(this.get()).format(args);
     }
 
     /**
@@ -118,17 +179,14 @@ public interface Lang extends PluginFile {
      * </ul>
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param amount The amount representative of the data token
      * @param args The arguments to replace any other tokens with.
      * @return The formatting string value for plurals
      */
     default public String pluralFormat(int amount, Object... args) {
-        String repl = this.get();
-        repl = repl.replaceAll("\\{PLURALA (.*)\\|(.*)\\}", amount == 1 ? "is " + amount + " $1" : "are " + amount + " $2");
-        repl = repl.replaceAll("\\{PLURAL (.*)\\|(.*)\\}", amount == 1 ? "$1" : "$2");
-        return Lang.color(String.format(repl, args));
+        return LangTemplate.plural(this.get(), amount).formatAndColor(amount, args);
     }
 
     /**
@@ -204,6 +262,21 @@ public interface Lang extends PluginFile {
                 : Lang.defaultFormat(plugin.getName());
     }
 
+    /**
+     * Returns the client locale of a {@link CommandSender}, as used for
+     * picking translated messages
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param target The {@link CommandSender} to check
+     * @return The lower-cased locale (e.g. {@code en_us}), or {@code null} if
+     *         the target is not a player or the server cannot provide it
+     */
+    public static String getLocale(CommandSender target) {
+        return LangBundle.localeOf(target);
+    }
+
     /**
      * Automatically translates strings that contain color codes using the
      * '{@code &}' symbol
@@ -235,10 +308,10 @@ public interface Lang extends PluginFile {
 
     /**
      * Sends a message but does not include {@link Lang#getFormat}, instead it
-     * uses a supplied format
+     * uses a supplied format. Both are translated to the target's locale
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param target The target to send to
      * @param format The format provided
@@ -249,18 +322,119 @@ public interface Lang extends PluginFile {
         if (target == null || format == null || message == null) {
             return;
         }
-        String s = format.formatAndColor(message.format(args));
+        String locale = Lang.getLocale(target);
+        String s = format.localize(locale).formatAndColor(message.localize(locale).format(args));
         if (!s.isEmpty()) {
             target.sendMessage(s);
         }
     }
 
+    /**
+     * Sends a formatted message to every passed target, prepending the
+     * {@link Lang#getFormat} to it. The message is rendered only once, and
+     * large target lists are messaged in chunks spread across several ticks
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param targets The targets to send to
+     * @param message The message to colorize and send
+     * @param args Arguments to supply to the {@link Lang} message
+     */
+    public static void broadcast(Collection<? extends CommandSender> targets, Lang message, Object... args) {
+        if (message == null) {
+            return;
+        }
+        Lang.broadcast(targets, message.getFormat(), message, args);
+    }
+
+    /**
+     * Sends a formatted message to every passed target using the supplied
+     * format. The message is rendered only once per locale, and large target
+     * lists are messaged in chunks spread across several ticks
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param targets The targets to send to
+     * @param format The format provided
+     * @param message The message to colorize and send
+     * @param args Arguments to supply to the {@link Lang} message
+     */
+    public static void broadcast(Collection<? extends CommandSender> targets, Lang format, Lang message, Object... args) {
+        if (targets == null || targets.isEmpty() || format == null || message == null) {
+            return;
+        }
+        Map<String, String> rendered = new HashMap<>();
+        List<CommandSender> to = new ArrayList<>(targets.size());
+        List<String> messages = new ArrayList<>(targets.size());
+        for (CommandSender target : targets) {
+            if (target == null) {
+                continue;
+            }
+            String locale = Lang.getLocale(target);
+            to.add(target);
+            messages.add(rendered.computeIfAbsent(locale == null ? "" : locale,
+                    k -> format.localize(locale).formatAndColor(message.localize(locale).format(args))));
+        }
+        LangBroadcast.dispatch(to, messages);
+    }
+
+    /**
+     * Sends a formatted message to every passed target, with arguments chosen
+     * per target. The message is rendered once for each distinct locale and
+     * set of arguments, and large target lists are messaged in chunks spread across
+     * several ticks. An example usage would be:
+     * <br><br>{@code
+     * Lang.broadcast(Bukkit.getOnlinePlayers(), MyLang.FORMAT, MyLang.TEAM_SCORE,
+     *     p -> new Object[]{teams.get(p).getName(), teams.get(p).getScore()});
+     * }
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param <T> The type of the targets
+     * @param targets The targets to send to
+     * @param format The format provided
+     * @param message The message to colorize and send
+     * @param args A function returning the message arguments for a target
+     */
+    public static <T extends CommandSender> void broadcast(Collection<? extends T> targets, Lang format, Lang message, Function<? super T, Object[]> args) {
+        if (targets == null || targets.isEmpty() || format == null || message == null) {
+            return;
+        }
+        Map<List<Object>, String> rendered = new HashMap<>();
+        List<Object> key = new ArrayList<>();
+        List<CommandSender> to = new ArrayList<>(targets.size());
+        List<String> messages = new ArrayList<>(targets.size());
+        for (T target : targets) {
+            if (target == null) {
+                continue;
+            }
+            Object[] a = args.apply(target);
+            String locale = Lang.getLocale(target);
+            key.clear();
+            key.add(locale);
+            if (a != null) {
+                key.addAll(Arrays.asList(a));
+            }
+            String s = rendered.get(key);
+            if (s == null) {
+                s = format.localize(locale).formatAndColor(message.localize(locale).format(a));
+                rendered.put(new ArrayList<>(key), s);
+            }
+            to.add(target);
+            messages.add(s);
+        }
+        LangBroadcast.dispatch(to, messages);
+    }
+
     /**
      * Sends a raw message without additional formatting aside from translating
      * color codes
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param target The target to send to
      * @param message The message to colorize and send
@@ -270,7 +444,7 @@ public interface Lang extends PluginFile {
         if (message == null || target == null) {
             return;
         }
-        String s = message.formatAndColor(args);
+        String s = message.localize(Lang.getLocale(target)).formatAndColor(args);
         if (!s.isEmpty()) {
             target.sendMessage(s);
         }
@@ -280,7 +454,7 @@ public interface Lang extends PluginFile {
      * Issues a "tellRaw" to a {@link Player} target with the supplied Lang
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @param target The {@link Player} to send the JSON message to
      * @param message A {@link Lang} representing a JSON payload
@@ -290,7 +464,7 @@ public interface Lang extends PluginFile {
         if (message == null || target == null) {
             return;
         }
-        String s = message.format(args);
+        String s = message.localize(Lang.getLocale(target)).format(args);
         if (!s.isEmpty()) {
             //Use command until proper api is in place
             Bukkit.dispatchCommand(Bukkit.getConsoleSender(), "tellRaw " + target.getName() + " " + s);
@@ -301,7 +475,7 @@ public interface Lang extends PluginFile {
      * Issues a "title" command to a {@link Player} target with the passed Lang
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @param target The {@link Player} to send the JSON title to
      * @param message A {@link Lang} representing a JSON payload for the title
@@ -311,7 +485,7 @@ public interface Lang extends PluginFile {
         if (message == null || target == null) {
             return;
         }
-        String s = message.format(args);
+        String s = message.localize(Lang.getLocale(target)).format(args);
         if (!s.isEmpty()) {
             //Use command until proper api is in place
             Bukkit.dispatchCommand(Bukkit.getConsoleSender(), "title " + target.getName() + " " + s); //inb4 "bukkit injection"
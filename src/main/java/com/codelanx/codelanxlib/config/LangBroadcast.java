@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.config;
+
+import com.codelanx.codelanxlib.CodelanxLib;
+import java.util.List;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Delivers already rendered messages to a list of recipients. Small lists are
+ * sent to immediately when upon the main thread; larger lists are sent to in
+ * chunks of {@link LangBroadcast#CHUNK_SIZE} recipients per tick, so that one
+ * broadcast does not stall a single tick. Players who leave before their
+ * chunk is reached are skipped
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+final class LangBroadcast extends BukkitRunnable {
+
+    /** The number of recipients messaged per tick */
+    static final int CHUNK_SIZE = 100;
+    private final List<CommandSender> targets;
+    private final List<String> messages;
+    private int index = 0;
+
+    private LangBroadcast(List<CommandSender> targets, List<String> messages) {
+        this.targets = targets;
+        this.messages = messages;
+    }
+
+    /**
+     * Sends each message to the recipient at the same index
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param targets The recipients
+     * @param messages The rendered message for each recipient
+     */
+    static void dispatch(List<CommandSender> targets, List<String> messages) {
+        LangBroadcast task = new LangBroadcast(targets, messages);
+        if (Bukkit.isPrimaryThread()) {
+            task.sendChunk();
+        }
+        if (task.index < targets.size()) {
+            task.runTaskTimer(CodelanxLib.get(), 1L, 1L);
+        }
+    }
+
+    /**
+     * Sends the next chunk of messages, cancelling this task once all have
+     * been sent
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    @Override
+    public void run() {
+        this.sendChunk();
+        if (this.index >= this.targets.size()) {
+            this.cancel();
+        }
+    }
+
+    private void sendChunk() {
+        int end = Math.min(this.targets.size(), this.index + LangBroadcast.CHUNK_SIZE);
+        for (; this.index < end; this.index++) {
+            CommandSender target = this.targets.get(this.index);
+            String message = this.messages.get(this.index);
+            if (message.isEmpty() || (target instanceof Player && !((Player) target).isOnline())) {
+                continue;
+            }
+            target.sendMessage(message);
+        }
+    }
+
+}
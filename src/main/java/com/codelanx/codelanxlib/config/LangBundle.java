@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.config;
+
+import com.codelanx.codelanxlib.data.FileDataType;
+import com.codelanx.codelanxlib.logging.Debugger;
+import java.io.File;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+/**
+ * Holds the translated files of a {@link Lang} class. A translation for the
+ * locale {@code de_de} of a {@link Lang} saved at {@code lang.yml} is read
+ * from {@code lang_de_de.yml} next to it. Each locale file is loaded once upon
+ * its first use and shared by every constant of the class; locales without a
+ * file are remembered as such, and fall back to the default file without
+ * touching the disk again
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+final class LangBundle {
+
+    private static final ClassValue<LangBundle> BUNDLES = new ClassValue<LangBundle>() {
+
+        @Override
+        protected LangBundle computeValue(Class<?> type) {
+            return new LangBundle(type.asSubclass(Lang.class));
+        }
+
+    };
+    private static final Object MISSING = new Object();
+    /** Client locales are untrusted, and only used if they look like one */
+    private static final Pattern LOCALE = Pattern.compile("[a-z]{2,3}(_[a-z0-9]{2,4})?");
+    private static volatile boolean spigot = true;
+    private final Class<? extends Lang> type;
+    private final Map<String, Object> files = new ConcurrentHashMap<>();
+
+    private LangBundle(Class<? extends Lang> type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the translated string of a {@link Lang} constant, or
+     * {@code null} if there is no translation for the locale. Locales which
+     * are not of the form {@code ll} or {@code ll_cc} are ignored without
+     * touching the disk or the cache
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param lang The {@link Lang} to translate
+     * @param locale The locale to translate to
+     * @return The translated string, or {@code null}
+     */
+    static String lookup(Lang lang, String locale) {
+        if (locale == null || lang.getClass().isAnonymousClass() || !LangBundle.LOCALE.matcher(locale).matches()) {
+            return null;
+        }
+        FileDataType data = LangBundle.BUNDLES.get(LangBundle.owner(lang.getClass())).getFile(lang, locale);
+        if (data == null) {
+            return null;
+        }
+        Object o = data.get(lang.getPath());
+        return o == null ? null : String.valueOf(o);
+    }
+
+    /**
+     * Discards all loaded translations of a {@link Lang} class, so that they
+     * are read again upon their next use
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param type The {@link Lang} class
+     */
+    static void invalidate(Class<? extends Lang> type) {
+        LangBundle.BUNDLES.get(LangBundle.owner(type)).files.clear();
+    }
+
+    private static Class<?> owner(Class<?> type) {
+        //constants with a class body are subclasses of their enum
+        return !type.isEnum() && type.getSuperclass() != null && type.getSuperclass().isEnum()
+                ? type.getSuperclass()
+                : type;
+    }
+
+    /**
+     * Returns the client locale of a {@link CommandSender}, or {@code null} if
+     * it has none or the server cannot provide it
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param target The {@link CommandSender} to check
+     * @return The lower-cased locale, such as {@code en_us}, or {@code null}
+     */
+    static String localeOf(CommandSender target) {
+        if (!(target instanceof Player) || !LangBundle.spigot) {
+            return null;
+        }
+        try {
+            String locale = ((Player) target).spigot().getLocale();
+            return locale == null ? null : locale.toLowerCase(Locale.ENGLISH);
+        } catch (NoSuchMethodError | UnsupportedOperationException ex) {
+            //Not a Spigot server, stop asking
+            LangBundle.spigot = false;
+            return null;
+        }
+    }
+
+    private FileDataType getFile(Lang lang, String locale) {
+        Object o = this.files.get(locale);
+        if (o == null) {
+            o = this.files.computeIfAbsent(locale, k -> this.load(lang, k));
+        }
+        return o == LangBundle.MISSING ? null : (FileDataType) o;
+    }
+
+    private Object load(Lang lang, String locale) {
+        File def = PluginFile.getFileLocation(this.type);
+        String name = def.getName();
+        int dot = name.lastIndexOf('.');
+        name = dot < 0
+                ? name + '_' + locale
+                : name.substring(0, dot) + '_' + locale + name.substring(dot);
+        File f = new File(def.getParentFile(), name);
+        if (!f.isFile()) {
+            return LangBundle.MISSING;
+        }
+        FileDataType data = FileDataType.newInstance(lang.getData().getDataClass(), f);
+        if (data == null) {
+            Debugger.print("Could not load translation file '%s', using the default", f.getPath());
+            return LangBundle.MISSING;
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.config;
+
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingFormatArgumentException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link Lang} string parsed once into literal and argument segments, which
+ * renders the same output as {@link String#format(String, Object...)} without
+ * re-parsing the format on every call. Plain {@code %s} and {@code %d}
+ * arguments are appended directly; any other format specifier is rendered
+ * through {@link String#format(String, Object...)} on its own. Literal text is
+ * color-translated when compiled, and arguments are only translated when they
+ * contain a '{@code &}' themselves. Strings which cannot be parsed fall back
+ * to {@link String#format(String, Object...)} as a whole, so any formatting
+ * errors are reported exactly as before.
+ * <br><br>
+ * Templates are cached by their source string, so a {@link Lang} whose value
+ * changes upon a reload simply compiles a new template. The cache is bounded,
+ * and keeps the templates in use while letting replaced or rarely used
+ * strings age out
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+final class LangTemplate {
+
+    private static final Pattern SPECIFIER = Pattern.compile("%(\\d+\\$)?([-#+ 0,(\\<]*)?(\\d+)?(\\.\\d+)?([tT])?([a-zA-Z%])");
+    private static final Pattern PLURALA = Pattern.compile("\\{PLURALA (.*)\\|(.*)\\}");
+    private static final Pattern PLURAL = Pattern.compile("\\{PLURAL (.*)\\|(.*)\\}");
+    private static final String CONVERSIONS = "bBhHsScCdoxXeEfgGaA%n";
+    private static final String DATE_CONVERSIONS = "HIklMSLNpzZsQBbhAaCYyjmdeRTrDFc";
+    private static final char AMOUNT_MARK = '\u0000';
+    private static final boolean ASCII_DIGITS = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getZeroDigit() == '0';
+    private static final int MAX_CACHED = 4096;
+    private static final int MAX_BUILDER = 8192;
+    private static final Generations<LangTemplate> FORMATS = new Generations<>();
+    private static final Generations<LangTemplate[]> PLURALS = new Generations<>();
+    private static final ThreadLocal<StringBuilder[]> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder[1]);
+    private static final byte LITERAL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte SPECIFIER_ARG = 3;
+    private static final byte AMOUNT = 4;
+    private final String source;
+    private final boolean amounts;
+    private final boolean fallback;
+    private final byte[] types;
+    private final String[] plain;
+    private final String[] colored;
+    private final int[] indices;
+    private final boolean colorSafe;
+
+    /**
+     * Compiles a format string
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param source The format string
+     * @param amounts Whether {@link LangTemplate#AMOUNT_MARK} characters mark
+     *                the position of a plural amount
+     */
+    private LangTemplate(String source, boolean amounts) {
+        this.source = source;
+        this.amounts = amounts;
+        List<Byte> types = new ArrayList<>();
+        List<String> plain = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        StringBuilder lit = new StringBuilder();
+        Matcher m = LangTemplate.SPECIFIER.matcher(source);
+        int pos = 0;
+        int ordinary = -1;
+        int last = -1;
+        boolean ok = true;
+        while (pos < source.length()) {
+            int pct = source.indexOf('%', pos);
+            if (pct < 0) {
+                lit.append(source, pos, source.length());
+                break;
+            }
+            lit.append(source, pos, pct);
+            m.region(pct, source.length());
+            if (!m.lookingAt()) {
+                ok = false;
+                break;
+            }
+            pos = m.end();
+            String flags = m.group(2) == null ? "" : m.group(2);
+            boolean simple = flags.isEmpty() && m.group(3) == null && m.group(4) == null && m.group(5) == null;
+            char conversion = m.group(6).charAt(0);
+            if ((m.group(5) == null ? LangTemplate.CONVERSIONS : LangTemplate.DATE_CONVERSIONS).indexOf(conversion) < 0) {
+                ok = false;
+                break;
+            }
+            if (conversion == '%' || conversion == 'n') {
+                if (!simple || m.group(1) != null) {
+                    ok = false;
+                    break;
+                }
+                lit.append(conversion == '%' ? "%" : System.lineSeparator());
+                continue;
+            }
+            int index;
+            if (m.group(1) != null) {
+                index = Integer.parseInt(m.group(1).substring(0, m.group(1).length() - 1)) - 1;
+                if (index < 0) {
+                    ok = false;
+                    break;
+                }
+            } else if (flags.indexOf('<') >= 0) {
+                index = last;
+                flags = flags.replace("<", "");
+                if (index < 0) {
+                    ok = false;
+                    break;
+                }
+            } else {
+                index = ++ordinary;
+            }
+            last = index;
+            LangTemplate.addLiteral(lit, amounts, types, plain, indices);
+            if (simple && conversion == 's') {
+                types.add(LangTemplate.STRING);
+                plain.add(m.group());
+            } else if (simple && conversion == 'd' && LangTemplate.ASCII_DIGITS) {
+                types.add(LangTemplate.INTEGER);
+                plain.add(m.group());
+            } else {
+                String spec = "%" + flags + (m.group(3) == null ? "" : m.group(3)) + (m.group(4) == null ? "" : m.group(4))
+                        + (m.group(5) == null ? "" : m.group(5)) + conversion;
+                try {
+                    //an invalid combination of flags fails here rather than upon rendering
+                    String.format(spec, (Object) null);
+                } catch (IllegalFormatException ex) {
+                    ok = false;
+                    break;
+                }
+                types.add(LangTemplate.SPECIFIER_ARG);
+                plain.add(spec);
+            }
+            indices.add(index);
+        }
+        LangTemplate.addLiteral(lit, amounts, types, plain, indices);
+        this.fallback = !ok;
+        this.types = new byte[types.size()];
+        this.plain = plain.toArray(new String[plain.size()]);
+        this.colored = new String[this.plain.length];
+        this.indices = new int[indices.size()];
+        boolean safe = true;
+        for (int i = 0; i < this.types.length; i++) {
+            this.types[i] = types.get(i);
+            this.indices[i] = indices.get(i);
+            if (this.types[i] == LangTemplate.LITERAL) {
+                this.colored[i] = Lang.color(this.plain[i]);
+                //a trailing '&' may combine with whatever follows it
+                if (this.colored[i].endsWith("&") && i < types.size() - 1) {
+                    safe = false;
+                }
+            }
+        }
+        this.colorSafe = safe;
+    }
+
+    /**
+     * Returns the compiled template for a format string
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param source The format string
+     * @return The compiled {@link LangTemplate}
+     */
+    static LangTemplate of(String source) {
+        LangTemplate back = LangTemplate.FORMATS.get(source);
+        if (back == null) {
+            back = new LangTemplate(source, false);
+            LangTemplate.FORMATS.put(source, back);
+        }
+        return back;
+    }
+
+    /**
+     * Returns the compiled template for a format string containing
+     * {@code PLURAL} or {@code PLURALA} tokens, as resolved for the passed
+     * amount. See {@link Lang#pluralFormat(int, Object...)}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param source The format string
+     * @param amount The amount the tokens are resolved for
+     * @return The compiled {@link LangTemplate}
+     */
+    static LangTemplate plural(String source, int amount) {
+        LangTemplate[] back = LangTemplate.PLURALS.get(source);
+        if (back == null) {
+            String one = LangTemplate.PLURALA.matcher(source).replaceAll("is 1 $1");
+            one = LangTemplate.PLURAL.matcher(one).replaceAll("$1");
+            String many = LangTemplate.PLURALA.matcher(source).replaceAll("are " + LangTemplate.AMOUNT_MARK + " $2");
+            many = LangTemplate.PLURAL.matcher(many).replaceAll("$2");
+            back = new LangTemplate[]{new LangTemplate(one, false), new LangTemplate(many, true)};
+            LangTemplate.PLURALS.put(source, back);
+        }
+        return back[amount == 1 ? 0 : 1];
+    }
+
+    /**
+     * Renders this template with the passed arguments
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param args The format arguments
+     * @return The formatted string
+     */
+    String format(Object... args) {
+        return this.render(args, 0, false);
+    }
+
+    /**
+     * Renders this template with the passed arguments, and translates any
+     * color codes in the result
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param args The format arguments
+     * @return The formatted and colored string
+     */
+    String formatAndColor(Object... args) {
+        return this.render(args, 0, true);
+    }
+
+    /**
+     * Renders this template with a plural amount and the passed arguments,
+     * and translates any color codes in the result
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param amount The amount to insert for {@code PLURALA} tokens
+     * @param args The format arguments
+     * @return The formatted and colored string
+     */
+    String formatAndColor(int amount, Object... args) {
+        return this.render(args, amount, true);
+    }
+
+    private String render(Object[] args, int amount, boolean color) {
+        if (this.fallback) {
+            String src = this.amounts ? this.source.replace(String.valueOf(LangTemplate.AMOUNT_MARK), String.valueOf(amount)) : this.source;
+            String out = String.format(src, args);
+            return color ? Lang.color(out) : out;
+        }
+        StringBuilder[] slot = LangTemplate.BUILDER.get();
+        StringBuilder sb = slot[0];
+        slot[0] = null; //nested renders upon this thread use their own builder
+        if (sb == null) {
+            sb = new StringBuilder(128);
+        }
+        try {
+            if (color && this.colorSafe && this.append(sb, args, amount, this.colored, true)) {
+                return sb.toString();
+            }
+            sb.setLength(0);
+            this.append(sb, args, amount, this.plain, false);
+            return color ? Lang.color(sb.toString()) : sb.toString();
+        } finally {
+            if (sb.capacity() <= LangTemplate.MAX_BUILDER) {
+                sb.setLength(0);
+                slot[0] = sb;
+            }
+        }
+    }
+
+    /**
+     * Appends each segment to the passed builder
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param sb The builder to append to
+     * @param args The format arguments
+     * @param amount The plural amount
+     * @param literals The literal text to use
+     * @param checkColor Whether to stop upon an argument containing '&'
+     * @return {@code false} if stopped by an argument containing '&'
+     */
+    private boolean append(StringBuilder sb, Object[] args, int amount, String[] literals, boolean checkColor) {
+        for (int i = 0; i < this.types.length; i++) {
+            int start = sb.length();
+            switch (this.types[i]) {
+                case LangTemplate.LITERAL:
+                    sb.append(literals[i]);
+                    continue;
+                case LangTemplate.AMOUNT:
+                    sb.append(amount);
+                    continue;
+                case LangTemplate.STRING:
+                    Object arg = this.arg(args, i);
+                    if (arg instanceof Formattable) {
+                        sb.append(String.format("%s", arg));
+                    } else {
+                        sb.append(arg);
+                    }
+                    break;
+                case LangTemplate.INTEGER:
+                    Object num = this.arg(args, i);
+                    if (num instanceof Integer || num instanceof Long || num instanceof Short || num instanceof Byte) {
+                        sb.append(((Number) num).longValue());
+                    } else {
+                        sb.append(String.format("%d", num));
+                    }
+                    break;
+                default:
+                    sb.append(String.format(this.plain[i], this.arg(args, i)));
+                    break;
+            }
+            if (checkColor && sb.indexOf("&", start) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Object arg(Object[] args, int segment) {
+        if (args == null) {
+            return null;
+        }
+        int index = this.indices[segment];
+        if (index >= args.length) {
+            throw new MissingFormatArgumentException(this.plain[segment]);
+        }
+        return args[index];
+    }
+
+    private static void addLiteral(StringBuilder lit, boolean amounts, List<Byte> types, List<String> plain, List<Integer> indices) {
+        if (lit.length() == 0) {
+            return;
+        }
+        String text = lit.toString();
+        lit.setLength(0);
+        int mark;
+        while (amounts && (mark = text.indexOf(LangTemplate.AMOUNT_MARK)) >= 0) {
+            if (mark > 0) {
+                types.add(LangTemplate.LITERAL);
+                plain.add(text.substring(0, mark));
+                indices.add(-1);
+            }
+            types.add(LangTemplate.AMOUNT);
+            plain.add("");
+            indices.add(-1);
+            text = text.substring(mark + 1);
+        }
+        if (!text.isEmpty()) {
+            types.add(LangTemplate.LITERAL);
+            plain.add(text);
+            indices.add(-1);
+        }
+    }
+
+    /**
+     * A bounded cache made of two generations. Lookups are lock-free, and hit
+     * the current generation first, promoting entries found in the previous
+     * one. Once the current generation fills, it becomes the previous one and
+     * the old previous generation is discarded, so entries which are not used
+     * for a full generation are evicted
+     * 
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     * 
+     * @param <V> The type of the cached values
+     */
+    private static final class Generations<V> {
+
+        private volatile Map<String, V> current = new ConcurrentHashMap<>();
+        private volatile Map<String, V> previous = new ConcurrentHashMap<>();
+
+        private V get(String key) {
+            V back = this.current.get(key);
+            if (back == null) {
+                back = this.previous.get(key);
+                if (back != null) {
+                    this.put(key, back);
+                }
+            }
+            return back;
+        }
+
+        private void put(String key, V value) {
+            Map<String, V> cur = this.current;
+            if (cur.size() >= LangTemplate.MAX_CACHED) {
+                synchronized (this) {
+                    if (this.current == cur) {
+                        this.previous = cur;
+                        this.current = new ConcurrentHashMap<>();
+                    }
+                }
+            }
+            this.current.put(key, value);
+        }
+
+    }
+
+}
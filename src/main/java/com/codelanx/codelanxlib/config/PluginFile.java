@@ -22,11 +22,13 @@ package com.codelanx.codelanxlib.config;
 import com.codelanx.codelanxlib.annotation.PluginClass;
 import com.codelanx.codelanxlib.annotation.RelativePath;
 import com.codelanx.codelanxlib.data.FileDataType;
+import com.codelanx.codelanxlib.data.FileSaver;
 import com.codelanx.codelanxlib.util.Reflections;
 import com.codelanx.codelanxlib.logging.Debugger;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a file containing mappings that is owned by a plugin, and can
@@ -34,7 +36,7 @@ import java.util.Arrays;
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public interface PluginFile {
 
@@ -153,6 +155,7 @@ public interface PluginFile {
                 }
             }
             use.save();
+            FileWatcher.saved(this);
             return (T) use;
         } catch (IOException ex) {
             Debugger.error(ex, "Error creating plugin file '%s'", path);
@@ -164,12 +167,13 @@ public interface PluginFile {
      * Saves the current file data from memory
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @throws IOException Failed to save to the file
      */
     default public void save() throws IOException {
         this.save(PluginFile.getFileLocation(this.getClass()));
+        FileWatcher.saved(this);
     }
 
     /**
@@ -185,4 +189,21 @@ public interface PluginFile {
         this.getConfig().save();
     }
 
+    /**
+     * Snapshots the current file data from memory and saves it upon a
+     * background thread, coalescing saves made in quick succession. Plugins
+     * should call {@link FileSaver#flush()} when disabling to wait on any
+     * pending writes
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A {@link CompletableFuture} which completes once the file has
+     *         been written
+     */
+    default public CompletableFuture<Void> saveAsync() {
+        return this.getConfig().saveAsync(PluginFile.getFileLocation(this.getClass()))
+                .thenRun(() -> FileWatcher.saved(this));
+    }
+
 }
@@ -0,0 +1,415 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.util.auth.UUIDFetcher;
+import java.beans.ConstructorProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang.Validate;
+
+/**
+ * A {@link RowMapper} which maps rows onto instances of a class by column
+ * label. Column labels are matched to setters, fields or
+ * {@link ConstructorProperties} constructor parameters ignoring case and
+ * underscores, so {@code player_uuid} will bind to {@code setPlayerUuid}.
+ * <br><br>
+ * Reflective lookups are done once per class, and column resolution is done
+ * once per distinct set of column labels, so mapping a row costs only the
+ * relevant {@link MethodHandle} invocations. Instances are shared, and should
+ * be retrieved via {@link BeanMapper#of(Class)}
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ * 
+ * @param <T> The type of object each row is mapped to
+ */
+public final class BeanMapper<T> implements RowMapper<T> {
+
+    private static final ClassValue<BeanMapper<?>> MAPPERS = new ClassValue<BeanMapper<?>>() {
+
+        @Override
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        protected BeanMapper<?> computeValue(Class<?> type) {
+            return new BeanMapper(type);
+        }
+
+    };
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final String[] constructorNames;
+    private final Class<?>[] constructorTypes;
+    private final Map<String, Property> properties = new HashMap<>();
+    private final Map<String, Binding> shapes = new ConcurrentHashMap<>();
+    private volatile Binding last;
+
+    private BeanMapper(Class<T> type) {
+        this.type = type;
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Constructor<?> noArgs = null;
+        Constructor<?> named = null;
+        for (Constructor<?> c : type.getDeclaredConstructors()) {
+            if (c.getParameterCount() == 0) {
+                noArgs = c;
+            } else if (c.isAnnotationPresent(ConstructorProperties.class)) {
+                named = c;
+            }
+        }
+        try {
+            if (noArgs != null) {
+                noArgs.setAccessible(true);
+                this.constructor = lookup.unreflectConstructor(noArgs)
+                        .asType(MethodType.methodType(Object.class));
+                this.constructorNames = null;
+                this.constructorTypes = null;
+            } else if (named != null) {
+                named.setAccessible(true);
+                String[] names = named.getAnnotation(ConstructorProperties.class).value();
+                Validate.isTrue(names.length == named.getParameterCount(),
+                        "@ConstructorProperties does not match the constructor of " + type.getName());
+                this.constructor = lookup.unreflectConstructor(named)
+                        .asSpreader(Object[].class, names.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                this.constructorNames = Arrays.stream(names).map(BeanMapper::normalize).toArray(String[]::new);
+                this.constructorTypes = named.getParameterTypes();
+            } else {
+                throw new IllegalArgumentException(type.getName()
+                        + " requires a no-args or @ConstructorProperties constructor");
+            }
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    int mod = f.getModifiers();
+                    if (Modifier.isStatic(mod) || Modifier.isFinal(mod) || Modifier.isTransient(mod)) {
+                        continue;
+                    }
+                    f.setAccessible(true);
+                    this.properties.putIfAbsent(BeanMapper.normalize(f.getName()),
+                            new Property(lookup.unreflectSetter(f).asType(SETTER), f.getType()));
+                }
+            }
+            for (Method m : type.getMethods()) {
+                if (Modifier.isStatic(m.getModifiers()) || m.getParameterCount() != 1
+                        || m.getName().length() < 4 || !m.getName().startsWith("set")) {
+                    continue;
+                }
+                //setters take precedence over fields
+                this.properties.put(BeanMapper.normalize(m.getName().substring(3)),
+                        new Property(lookup.unreflect(m).asType(SETTER), m.getParameterTypes()[0]));
+            }
+        } catch (IllegalAccessException ex) {
+            throw new IllegalArgumentException("Unable to access members of " + type.getName(), ex);
+        }
+    }
+
+    /**
+     * Returns the shared {@link BeanMapper} for the passed class, creating
+     * and caching it if needed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <T> The type of object to map to
+     * @param type The {@link Class} of object to map to
+     * @return The {@link BeanMapper} for the class
+     * @throws IllegalArgumentException If the class has neither a no-args nor
+     *                                  a {@link ConstructorProperties}
+     *                                  constructor
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanMapper<T> of(Class<T> type) {
+        Validate.notNull(type, "Class cannot be null");
+        return (BeanMapper<T>) BeanMapper.MAPPERS.get(type);
+    }
+
+    /**
+     * Returns the {@link Class} this mapper produces
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The mapped {@link Class}
+     */
+    public Class<T> getType() {
+        return this.type;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * Columns without a matching property are ignored, and properties or
+     * constructor parameters without a matching column are left at their
+     * defaults
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param rs {@inheritDoc}
+     * @return {@inheritDoc}
+     * @throws SQLException {@inheritDoc}, or if the object could not be
+     *                      constructed
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T map(ResultSet rs) throws SQLException {
+        Binding b = this.bind(rs);
+        try {
+            Object bean;
+            if (b.argColumns == null) {
+                bean = (Object) this.constructor.invokeExact();
+            } else {
+                Object[] args = new Object[b.argColumns.length];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = b.argColumns[i] > 0
+                            ? b.argReaders[i].read(rs, b.argColumns[i])
+                            : b.argDefaults[i];
+                }
+                bean = (Object) this.constructor.invokeExact(args);
+            }
+            for (int i = 0; i < b.columns.length; i++) {
+                Property p = b.props[i];
+                p.setter.invokeExact(bean, p.reader.read(rs, b.columns[i]));
+            }
+            return (T) bean;
+        } catch (SQLException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new SQLException("Unable to map row to " + this.type.getName(), ex);
+        }
+    }
+
+    /**
+     * Returns the column binding for the passed {@link ResultSet}. Successive
+     * rows of the same {@link ResultSet} reuse the last binding without
+     * touching its {@link ResultSetMetaData}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param rs The {@link ResultSet} being mapped
+     * @return The {@link Binding} for the result set's columns
+     * @throws SQLException If the metadata could not be read
+     */
+    private Binding bind(ResultSet rs) throws SQLException {
+        Binding b = this.last;
+        if (b != null && b.source.get() == rs) {
+            return b;
+        }
+        ResultSetMetaData meta = rs.getMetaData();
+        String[] labels = new String[meta.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = BeanMapper.normalize(meta.getColumnLabel(i + 1));
+        }
+        Binding shape = this.shapes.computeIfAbsent(String.join(",", labels), k -> this.resolve(labels));
+        this.last = b = new Binding(rs, shape);
+        return b;
+    }
+
+    /**
+     * Resolves a set of normalized column labels to constructor parameters
+     * and properties
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param labels The normalized column labels, in column order
+     * @return The resolved {@link Binding}
+     */
+    private Binding resolve(String[] labels) {
+        boolean[] used = new boolean[labels.length];
+        int[] argColumns = null;
+        ColumnReader[] argReaders = null;
+        Object[] argDefaults = null;
+        if (this.constructorNames != null) {
+            int len = this.constructorNames.length;
+            argColumns = new int[len];
+            argReaders = new ColumnReader[len];
+            argDefaults = new Object[len];
+            for (int i = 0; i < len; i++) {
+                Class<?> ptype = this.constructorTypes[i];
+                argReaders[i] = BeanMapper.reader(ptype);
+                argDefaults[i] = ptype.isPrimitive() ? Array.get(Array.newInstance(ptype, 1), 0) : null;
+                for (int c = 0; c < labels.length; c++) {
+                    if (!used[c] && labels[c].equals(this.constructorNames[i])) {
+                        argColumns[i] = c + 1;
+                        used[c] = true;
+                        break;
+                    }
+                }
+            }
+        }
+        int[] columns = new int[labels.length];
+        Property[] props = new Property[labels.length];
+        int count = 0;
+        for (int c = 0; c < labels.length; c++) {
+            Property p = this.properties.get(labels[c]);
+            if (!used[c] && p != null) {
+                columns[count] = c + 1;
+                props[count++] = p;
+            }
+        }
+        return new Binding(argColumns, argReaders, argDefaults,
+                Arrays.copyOf(columns, count), Arrays.copyOf(props, count));
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Selects the typed {@link ResultSet} accessor for a property type. Boxed
+     * types are read as {@code null} when the column is SQL {@code NULL}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param type The type of the property
+     * @return A {@link ColumnReader} for that type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ColumnReader reader(Class<?> type) {
+        if (type == int.class) {
+            return ResultSet::getInt;
+        } else if (type == long.class) {
+            return ResultSet::getLong;
+        } else if (type == double.class) {
+            return ResultSet::getDouble;
+        } else if (type == float.class) {
+            return ResultSet::getFloat;
+        } else if (type == boolean.class) {
+            return ResultSet::getBoolean;
+        } else if (type == short.class) {
+            return ResultSet::getShort;
+        } else if (type == byte.class) {
+            return ResultSet::getByte;
+        } else if (type == Integer.class) {
+            return (rs, i) -> BeanMapper.nullable(rs, rs.getInt(i));
+        } else if (type == Long.class) {
+            return (rs, i) -> BeanMapper.nullable(rs, rs.getLong(i));
+        } else if (type == Double.class) {
+            return (rs, i) -> BeanMapper.nullable(rs, rs.getDouble(i));
+        } else if (type == Float.class) {
+            return (rs, i) -> BeanMapper.nullable(rs, rs.getFloat(i));
+        } else if (type == Boolean.class) {
+            return (rs, i) -> BeanMapper.nullable(rs, rs.getBoolean(i));
+        } else if (type == Short.class) {
+            return (rs, i) -> BeanMapper.nullable(rs, rs.getShort(i));
+        } else if (type == Byte.class) {
+            return (rs, i) -> BeanMapper.nullable(rs, rs.getByte(i));
+        } else if (type == String.class) {
+            return ResultSet::getString;
+        } else if (type == byte[].class) {
+            return ResultSet::getBytes;
+        } else if (type == BigDecimal.class) {
+            return ResultSet::getBigDecimal;
+        } else if (type == Timestamp.class) {
+            return ResultSet::getTimestamp;
+        } else if (type == UUID.class) {
+            return (rs, i) -> {
+                Object o = rs.getObject(i);
+                if (o instanceof byte[]) {
+                    return UUIDFetcher.fromBytes((byte[]) o);
+                }
+                return o == null || o instanceof UUID ? o : UUID.fromString(o.toString());
+            };
+        } else if (type.isEnum()) {
+            return (rs, i) -> {
+                String s = rs.getString(i);
+                return s == null ? null : Enum.valueOf((Class<? extends Enum>) type, s);
+            };
+        }
+        return (rs, i) -> {
+            Object o = rs.getObject(i);
+            return o == null || type.isInstance(o) ? o : rs.getObject(i, type);
+        };
+    }
+
+    private static Object nullable(ResultSet rs, Object value) throws SQLException {
+        return rs.wasNull() ? null : value;
+    }
+
+    @FunctionalInterface
+    private static interface ColumnReader {
+
+        public Object read(ResultSet rs, int column) throws SQLException;
+
+    }
+
+    private static final class Property {
+
+        private final MethodHandle setter;
+        private final ColumnReader reader;
+
+        public Property(MethodHandle setter, Class<?> type) {
+            this.setter = setter;
+            this.reader = BeanMapper.reader(type);
+        }
+
+    }
+
+    private static final class Binding {
+
+        private final WeakReference<ResultSet> source;
+        private final int[] argColumns;
+        private final ColumnReader[] argReaders;
+        private final Object[] argDefaults;
+        private final int[] columns;
+        private final Property[] props;
+
+        public Binding(int[] argColumns, ColumnReader[] argReaders, Object[] argDefaults, int[] columns, Property[] props) {
+            this.source = new WeakReference<>(null);
+            this.argColumns = argColumns;
+            this.argReaders = argReaders;
+            this.argDefaults = argDefaults;
+            this.columns = columns;
+            this.props = props;
+        }
+
+        public Binding(ResultSet source, Binding shape) {
+            this.source = new WeakReference<>(source);
+            this.argColumns = shape.argColumns;
+            this.argReaders = shape.argReaders;
+            this.argDefaults = shape.argDefaults;
+            this.columns = shape.columns;
+            this.props = shape.props;
+        }
+
+    }
+
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.util.Databases;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Writes a collection of objects using multi-row {@code INSERT} statements,
+ * rather than the single-row batches of
+ * {@link SQLDataType#batchUpdate(String, int, Collection, Function...)}. Rows
+ * are grouped into chunks bounded by both a placeholder limit and an
+ * estimated statement size, and each chunk is sent as a single statement:
+ * <br><br>{@code
+ * BulkInsert<SomeObject> insert = BulkInsert.<SomeObject>builder("players", "uuid", "name", "score")
+ *     .mappers(SomeObject::getUUID, SomeObject::getName, SomeObject::getScore)
+ *     .upsert("name", "score")
+ *     .build();
+ * SQLResponse<int[]> resp = insert.execute(db, yourCollection);
+ * }
+ * <br><br>
+ * Upserts are written as {@code INSERT ... ON DUPLICATE KEY UPDATE} on MySQL
+ * and {@code INSERT OR REPLACE} on SQLite. Instances are immutable and may
+ * be shared between threads
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ * 
+ * @param <T> The type of the objects being written
+ */
+public final class BulkInsert<T> {
+
+    private final String table;
+    private final String[] columns;
+    private final Function<T, ?>[] mappers;
+    private final String[] updateColumns;
+    private final Dialect dialect;
+    private final int maxParameters;
+    private final int maxPacketSize;
+
+    /**
+     * Creates a new {@link BulkInsert} from a {@link Builder}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param builder The {@link Builder} used for constructing this writer
+     */
+    private BulkInsert(Builder<T> builder) {
+        this.table = builder.table;
+        this.columns = builder.columns;
+        this.mappers = builder.mappers;
+        this.updateColumns = builder.updateColumns;
+        this.dialect = builder.dialect;
+        this.maxParameters = builder.maxParameters;
+        this.maxPacketSize = builder.maxPacketSize;
+    }
+
+    /**
+     * Returns a new {@link Builder} for a {@link BulkInsert}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <T> The type of the objects being written
+     * @param table The table to insert into
+     * @param columns The columns to insert, in the same order as the mappers
+     * @return A new {@link Builder}
+     */
+    public static <T> Builder<T> builder(String table, String... columns) {
+        return new Builder<>(table, columns);
+    }
+
+    /**
+     * Writes the passed values in as few statements as the configured limits
+     * allow. All chunks are written in a single
+     * {@link SQLDataType#transaction(int, SQLFunction)}, which is rolled back
+     * if any chunk fails, and so run upon the writer thread of a tuned
+     * {@link com.codelanx.codelanxlib.data.types.SQLite}. If called upon the
+     * {@link SQLDataType} of a transaction, the chunks join that transaction
+     * <br><br>
+     * Note that MySQL reports an upsert which changed an existing row as two
+     * updated rows
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param db The {@link SQLDataType} to write to
+     * @param values The objects to write
+     * @return An {@link SQLResponse} containing the update count of each
+     *         chunk, the total number of updated rows, and any exception that
+     *         occurred. Nothing is written if an exception occurred
+     */
+    public SQLResponse<int[]> execute(SQLDataType db, Collection<? extends T> values) {
+        SQLResponse<int[]> resp = new SQLResponse<>();
+        List<Object[]> rows = new ArrayList<>(values.size());
+        for (T val : values) {
+            Object[] row = new Object[this.mappers.length];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = this.mappers[i].apply(val);
+            }
+            rows.add(row);
+        }
+        int[] counts = new int[0];
+        if (rows.isEmpty()) {
+            resp.setResponse(counts);
+            return resp;
+        }
+        SQLResponse<int[]> tx = db.transaction(1, scope -> {
+            Connection con = scope.getConnection();
+            Dialect dialect = this.dialect == null ? Dialect.of(con) : this.dialect;
+            int maxRows = Math.max(1, (this.maxParameters > 0
+                    ? this.maxParameters : dialect.getMaxParameters()) / this.columns.length);
+            int base = this.toSQL(dialect, 0).length();
+            //packet limits may split chunks further, so this may still grow
+            int[] back = new int[(rows.size() + maxRows - 1) / maxRows];
+            int chunks = 0;
+            int start = 0;
+            while (start < rows.size()) {
+                int end = start;
+                int size = base;
+                while (end < rows.size() && end - start < maxRows) {
+                    int rowSize = BulkInsert.estimate(rows.get(end));
+                    if (end > start && size + rowSize > this.maxPacketSize) {
+                        break;
+                    }
+                    size += rowSize;
+                    end++;
+                }
+                if (chunks == back.length) {
+                    back = Arrays.copyOf(back, back.length * 2);
+                }
+                back[chunks++] = this.executeChunk(con, dialect, rows.subList(start, end));
+                start = end;
+            }
+            return chunks == back.length ? back : Arrays.copyOf(back, chunks);
+        });
+        if (tx.getException() != null) {
+            resp.setException(tx.getException());
+        } else {
+            counts = tx.getResponse();
+        }
+        resp.setResponse(counts);
+        resp.setUpdatedRows(Databases.sumUpdates(counts));
+        return resp;
+    }
+
+    /**
+     * Asynchronously writes the passed values on the {@link SQLExecutor}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see BulkInsert#execute(SQLDataType, Collection)
+     * @param db The {@link SQLDataType} to write to
+     * @param values The objects to write
+     * @return A {@link CompletableFuture} of the resulting {@link SQLResponse}
+     */
+    public CompletableFuture<SQLResponse<int[]>> executeAsync(SQLDataType db, Collection<? extends T> values) {
+        return SQLExecutor.supply(() -> this.execute(db, values));
+    }
+
+    /**
+     * Writes a single chunk of rows as one statement
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param con The {@link Connection} to write with
+     * @param dialect The {@link Dialect} of the database
+     * @param rows The rows in this chunk
+     * @return The number of updated rows
+     * @throws SQLException If the statement fails
+     */
+    private int executeChunk(Connection con, Dialect dialect, List<Object[]> rows) throws SQLException {
+        PreparedStatement stmt = null;
+        String sql = this.toSQL(dialect, rows.size());
+        long start = System.nanoTime();
+        int updated = 0;
+        boolean failed = true;
+        try {
+            stmt = con.prepareStatement(sql);
+            int index = 1;
+            for (Object[] row : rows) {
+                for (Object o : row) {
+                    stmt.setObject(index++, o);
+                }
+            }
+            updated = stmt.executeUpdate();
+            failed = false;
+            return updated;
+        } finally {
+            Databases.close(stmt);
+            QueryMetrics.record(sql, System.nanoTime() - start, updated, failed);
+        }
+    }
+
+    /**
+     * Builds the statement for a chunk of the given number of rows
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param dialect The {@link Dialect} of the database
+     * @param rows The number of rows in the chunk
+     * @return The SQL statement
+     */
+    private String toSQL(Dialect dialect, int rows) {
+        StringBuilder sb = new StringBuilder(64 + rows * this.columns.length * 2);
+        boolean replace = this.updateColumns != null && dialect == Dialect.SQLITE;
+        sb.append(replace ? "INSERT OR REPLACE INTO " : "INSERT INTO ").append(this.table).append(" (");
+        sb.append(String.join(", ", this.columns)).append(") VALUES ");
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) {
+                sb.append(',');
+            }
+            sb.append('(');
+            for (int c = 0; c < this.columns.length; c++) {
+                sb.append(c > 0 ? ",?" : "?");
+            }
+            sb.append(')');
+        }
+        if (this.updateColumns != null && dialect == Dialect.MYSQL) {
+            sb.append(" ON DUPLICATE KEY UPDATE ");
+            String[] update = this.updateColumns.length > 0 ? this.updateColumns : this.columns;
+            for (int i = 0; i < update.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(update[i]).append("=VALUES(").append(update[i]).append(')');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Estimates the number of bytes a row adds to a statement once its
+     * parameters are sent. Strings are assumed to be fully multi-byte
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param row The mapped parameters of the row
+     * @return The estimated size in bytes
+     */
+    private static int estimate(Object[] row) {
+        int size = 3;
+        for (Object o : row) {
+            if (o == null) {
+                size += 5;
+            } else if (o instanceof CharSequence) {
+                size += ((CharSequence) o).length() * 3 + 3;
+            } else if (o instanceof byte[]) {
+                size += ((byte[]) o).length * 2 + 4;
+            } else {
+                size += 25;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The SQL dialects supported by {@link BulkInsert}
+     * 
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     */
+    public static enum Dialect {
+
+        /** MySQL and MariaDB, using {@code ON DUPLICATE KEY UPDATE} */
+        MYSQL(65535),
+        /** SQLite, using {@code INSERT OR REPLACE} */
+        SQLITE(999),
+        ;
+
+        private final int maxParameters;
+
+        private Dialect(int maxParameters) {
+            this.maxParameters = maxParameters;
+        }
+
+        /**
+         * Returns the default maximum number of placeholders in a statement
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The maximum placeholder count
+         */
+        public int getMaxParameters() {
+            return this.maxParameters;
+        }
+
+        /**
+         * Determines the {@link Dialect} of a {@link Connection} from its
+         * database product name
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param con The {@link Connection} to check
+         * @return The relevant {@link Dialect}
+         * @throws SQLException If the metadata could not be read
+         */
+        public static Dialect of(Connection con) throws SQLException {
+            String name = con.getMetaData().getDatabaseProductName();
+            return name != null && name.toLowerCase(Locale.ENGLISH).contains("sqlite") ? SQLITE : MYSQL;
+        }
+
+    }
+
+    /**
+     * Builds a {@link BulkInsert}
+     * 
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     * 
+     * @param <T> The type of the objects being written
+     */
+    public static final class Builder<T> {
+
+        private final String table;
+        private final String[] columns;
+        private Function<T, ?>[] mappers;
+        private String[] updateColumns;
+        private Dialect dialect;
+        private int maxParameters = 0;
+        private int maxPacketSize = 1024 * 1024;
+
+        private Builder(String table, String... columns) {
+            Validate.notNull(table, "Table cannot be null");
+            Validate.isTrue(columns != null && columns.length > 0, "Columns are required");
+            this.table = table;
+            this.columns = columns;
+        }
+
+        /**
+         * Sets the functions mapping a written object to the values of each
+         * column, in the same manner as
+         * {@link SQLDataType#batchUpdate(String, int, Collection, Function...)}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param mappers A series of functions for mapping objects to params
+         * @return This {@link Builder} instance
+         */
+        @SafeVarargs
+        public final Builder<T> mappers(Function<T, ?>... mappers) {
+            this.mappers = mappers;
+            return this;
+        }
+
+        /**
+         * Makes the insert an upsert. On MySQL only the passed columns are
+         * updated for rows with a duplicate key, or every column if none are
+         * passed. SQLite replaces the entire row
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param updateColumns The columns to update on duplicate keys
+         * @return This {@link Builder} instance
+         */
+        public Builder<T> upsert(String... updateColumns) {
+            this.updateColumns = updateColumns == null ? new String[0] : updateColumns;
+            return this;
+        }
+
+        /**
+         * Sets the {@link Dialect} to write in. If not set, the dialect is
+         * detected from the connection on each execution
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param dialect The {@link Dialect} to use
+         * @return This {@link Builder} instance
+         */
+        public Builder<T> dialect(Dialect dialect) {
+            this.dialect = dialect;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of placeholders in a single statement. If
+         * not set, the default for the {@link Dialect} is used
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param maxParameters The placeholder limit
+         * @return This {@link Builder} instance
+         */
+        public Builder<T> maxParameters(int maxParameters) {
+            Validate.isTrue(maxParameters > 0, "maxParameters must be greater than 0");
+            this.maxParameters = maxParameters;
+            return this;
+        }
+
+        /**
+         * Sets the estimated maximum size of a single statement in bytes.
+         * This should be kept below the server's {@code max_allowed_packet}.
+         * Defaults to 1MiB
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param bytes The statement size limit
+         * @return This {@link Builder} instance
+         */
+        public Builder<T> maxPacketSize(int bytes) {
+            Validate.isTrue(bytes > 0, "maxPacketSize must be greater than 0");
+            this.maxPacketSize = bytes;
+            return this;
+        }
+
+        /**
+         * Builds the {@link BulkInsert}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The new {@link BulkInsert}
+         * @throws IllegalArgumentException If the mappers do not match the
+         *                                  columns
+         */
+        public BulkInsert<T> build() {
+            Validate.isTrue(this.mappers != null && this.mappers.length == this.columns.length,
+                    "A parameter mapper is required for each column");
+            return new BulkInsert<>(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,718 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.logging.Debugger;
+import com.codelanx.codelanxlib.util.Databases;
+import com.codelanx.codelanxlib.util.Scheduler;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang.Validate;
+
+/**
+ * A bounded pool of JDBC {@link Connection Connections}. Connections handed
+ * out by {@link ConnectionPool#borrow()} are proxies which return themselves
+ * to the pool upon {@link Connection#close()}, rather than closing the
+ * underlying socket. Idle connections are validated with a driver ping
+ * ({@link Connection#isValid(int)}) before being handed out, and connections
+ * idle past the configured timeout are evicted down to the minimum pool size
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /** Connections used more recently than this skip the validation ping */
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private final String url;
+    private final Properties props;
+    private final Settings settings;
+    private final StatementCache statementCache;
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final ScheduledFuture<?> evictor;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new {@link ConnectionPool} and opens the minimum number of
+     * idle connections specified by the passed {@link Settings}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param url The JDBC url to connect to
+     * @param props The {@link Properties} to connect with (user, password, etc)
+     * @param settings The {@link Settings} for this pool
+     * @throws SQLException If the initial connections cannot be opened
+     */
+    public ConnectionPool(String url, Properties props, Settings settings) throws SQLException {
+        Validate.notNull(url, "JDBC url cannot be null");
+        Validate.notNull(settings, "Pool settings cannot be null");
+        this.url = url;
+        this.props = props == null ? new Properties() : props;
+        this.settings = settings;
+        this.statementCache = settings.statementCacheSize > 0 ? new StatementCache(settings.statementCacheSize) : null;
+        try {
+            for (int i = 0; i < this.settings.minIdle; i++) {
+                this.total.incrementAndGet();
+                this.idle.offerLast(this.create());
+            }
+        } catch (SQLException ex) {
+            PooledConnection pc;
+            while ((pc = this.idle.pollFirst()) != null) {
+                Databases.close(pc.physical);
+            }
+            this.total.set(0);
+            throw ex;
+        }
+        long evict = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(this.settings.idleTimeoutMS) / 2);
+        this.evictor = Scheduler.runAsyncTaskRepeat(this::evict, evict, evict);
+    }
+
+    /**
+     * Leases a {@link Connection} from this pool, waiting up to the configured
+     * borrow timeout for one to become available. The returned connection
+     * must be closed by the caller in order to return it to the pool
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A leased {@link Connection}
+     * @throws SQLException If the pool is closed, no connection could be
+     *                      obtained in time, or a new connection failed to open.
+     *                      Timeouts are thrown as a
+     *                      {@link SQLTransientConnectionException}
+     */
+    public Connection borrow() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(this.settings.borrowTimeoutMS);
+        PooledConnection back = null;
+        while (back == null) {
+            PooledConnection pc = this.idle.pollFirst();
+            if (pc == null) {
+                int size = this.total.get();
+                if (size < this.settings.maxSize) {
+                    if (this.total.compareAndSet(size, size + 1)) {
+                        try {
+                            //fresh connections need no validation
+                            back = this.create();
+                        } catch (SQLException ex) {
+                            this.total.decrementAndGet();
+                            throw ex;
+                        }
+                    }
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    this.timeouts.incrementAndGet();
+                    throw new SQLTransientConnectionException(String.format("Timed out after %dms waiting for a connection (active: %d, idle: %d, max: %d)",
+                            this.settings.borrowTimeoutMS, this.getActiveCount(), this.getIdleCount(), this.settings.maxSize));
+                }
+                this.waiting.incrementAndGet();
+                try {
+                    pc = this.idle.pollFirst(remaining, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a connection", ex);
+                } finally {
+                    this.waiting.decrementAndGet();
+                }
+                if (pc == null) {
+                    continue;
+                }
+            }
+            if (this.validate(pc)) {
+                back = pc;
+            } else {
+                this.destroy(pc);
+            }
+        }
+        long waited = System.nanoTime() - start;
+        this.borrows.incrementAndGet();
+        this.waitNanos.addAndGet(waited);
+        this.maxWaitNanos.accumulateAndGet(waited, Math::max);
+        this.active.incrementAndGet();
+        return back.lease();
+    }
+
+    /**
+     * Returns the number of connections currently leased out of this pool
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of active connections
+     */
+    public int getActiveCount() {
+        return this.active.get();
+    }
+
+    /**
+     * Returns the number of open connections sitting idle in this pool
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of idle connections
+     */
+    public int getIdleCount() {
+        return this.idle.size();
+    }
+
+    /**
+     * Returns the total number of physical connections opened by this pool,
+     * both active and idle
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The total number of open connections
+     */
+    public int getTotalCount() {
+        return this.total.get();
+    }
+
+    /**
+     * Returns the number of threads currently blocked waiting for a
+     * connection to be returned to this pool
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of waiting threads
+     */
+    public int getWaitingCount() {
+        return this.waiting.get();
+    }
+
+    /**
+     * Returns the average amount of time a call to {@link #borrow()} has
+     * taken to obtain a connection
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param unit The {@link TimeUnit} to return the wait time in
+     * @return The average wait time
+     */
+    public long getAverageWaitTime(TimeUnit unit) {
+        long count = this.borrows.get();
+        return count == 0 ? 0 : unit.convert(this.waitNanos.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest amount of time a call to {@link #borrow()} has
+     * taken to obtain a connection
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param unit The {@link TimeUnit} to return the wait time in
+     * @return The maximum wait time
+     */
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(this.maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of successful calls to {@link #borrow()}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of connections leased
+     */
+    public long getBorrowCount() {
+        return this.borrows.get();
+    }
+
+    /**
+     * Returns the number of calls to {@link #borrow()} which timed out
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of borrow timeouts
+     */
+    public long getTimeoutCount() {
+        return this.timeouts.get();
+    }
+
+    /**
+     * Returns the {@link Settings} used by this pool
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The settings for this pool
+     */
+    public Settings getSettings() {
+        return this.settings;
+    }
+
+    /**
+     * Returns the {@link StatementCache} shared by the connections in this
+     * pool, which exposes hit and miss statistics
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The {@link StatementCache}, or {@code null} if disabled
+     */
+    public StatementCache getStatementCache() {
+        return this.statementCache;
+    }
+
+    /**
+     * Returns whether or not this pool has been closed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@code true} if {@link #close()} has been called
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Closes all idle connections and stops leasing new ones. Connections
+     * which are currently leased are closed as they are returned
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.evictor.cancel(false);
+        PooledConnection pc;
+        while ((pc = this.idle.pollFirst()) != null) {
+            this.destroy(pc);
+        }
+    }
+
+    /**
+     * Opens a new physical connection
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The new {@link PooledConnection}
+     * @throws SQLException If the connection fails to open
+     */
+    private PooledConnection create() throws SQLException {
+        Connection con = DriverManager.getConnection(this.url, this.props);
+        if (this.settings.initializer != null) {
+            try {
+                this.settings.initializer.accept(con);
+            } catch (SQLException ex) {
+                Databases.close(con);
+                throw ex;
+            }
+        }
+        if (this.statementCache != null) {
+            con = this.statementCache.wrap(con);
+        }
+        return new PooledConnection(con);
+    }
+
+    /**
+     * Checks that an idle connection is still usable. Connections returned to
+     * the pool very recently are assumed to be alive
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param pc The {@link PooledConnection} to check
+     * @return {@code true} if the connection can be leased
+     */
+    private boolean validate(PooledConnection pc) {
+        if (System.nanoTime() - pc.lastUsed < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return pc.physical.isValid(this.settings.validationTimeoutSeconds);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns a leased connection to the idle queue, resetting any
+     * transactional state left on it
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param pc The {@link PooledConnection} being returned
+     */
+    private void release(PooledConnection pc) {
+        this.active.decrementAndGet();
+        if (this.closed || pc.broken) {
+            this.destroy(pc);
+            return;
+        }
+        try {
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            pc.physical.clearWarnings();
+        } catch (SQLException ex) {
+            this.destroy(pc);
+            return;
+        }
+        pc.lastUsed = System.nanoTime();
+        this.idle.offerFirst(pc);
+    }
+
+    /**
+     * Closes a physical connection and removes it from the pool's count
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param pc The {@link PooledConnection} to destroy
+     */
+    private void destroy(PooledConnection pc) {
+        this.total.decrementAndGet();
+        Databases.close(pc.physical);
+    }
+
+    /**
+     * Closes connections which have sat idle past the idle timeout, keeping at
+     * least the minimum number of idle connections open
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    private void evict() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(this.settings.idleTimeoutMS);
+        Iterator<PooledConnection> itr = this.idle.descendingIterator();
+        while (itr.hasNext() && this.idle.size() > this.settings.minIdle) {
+            PooledConnection pc = itr.next();
+            if (pc.lastUsed < cutoff && this.idle.removeLastOccurrence(pc)) {
+                this.destroy(pc);
+            }
+        }
+    }
+
+    /**
+     * Wraps a single physical connection owned by the pool
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    private final class PooledConnection {
+
+        private final Connection physical;
+        private volatile long lastUsed = System.nanoTime();
+        private volatile boolean broken = false;
+
+        public PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Returns a new proxy for this connection, for a single lease
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return A {@link Connection} proxy which returns to the pool when
+         *         closed
+         */
+        public Connection lease() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+
+    }
+
+    /**
+     * The handler behind the proxy of a single lease. Each lease has its own
+     * closed state, so a proxy kept after being closed cannot use or return
+     * the physical connection once it is leased to someone else
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    private final class Lease implements InvocationHandler {
+
+        private final PooledConnection pc;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        public Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (this.closed.compareAndSet(false, true)) {
+                        ConnectionPool.this.release(this.pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return this.closed.get() || this.pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + this.pc.physical.toString();
+            }
+            if (this.closed.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(this.pc.physical, args);
+            } catch (InvocationTargetException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    //SQLState class 08 represents a connection exception
+                    if (state != null && state.startsWith("08")) {
+                        this.pc.broken = true;
+                    }
+                }
+                throw cause;
+            }
+        }
+
+    }
+
+    /**
+     * Sizing and timeout preferences for a {@link ConnectionPool}. Defaults
+     * to a minimum of 2 idle connections, a maximum of 10 connections, a
+     * 10 minute idle timeout, a 30 second borrow timeout, a 5 second
+     * validation timeout and no statement caching
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public static final class Settings {
+
+        private int minIdle = 2;
+        private int maxSize = 10;
+        private long idleTimeoutMS = TimeUnit.MINUTES.toMillis(10);
+        private long borrowTimeoutMS = TimeUnit.SECONDS.toMillis(30);
+        private int validationTimeoutSeconds = 5;
+        private int statementCacheSize = 0;
+        private SQLConsumer<? super Connection> initializer;
+
+        /**
+         * Sets the number of connections the pool will keep open even when
+         * they are idle
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param minIdle The minimum number of idle connections
+         * @return This {@link Settings} instance
+         */
+        public Settings minIdle(int minIdle) {
+            Validate.isTrue(minIdle >= 0, "Minimum idle connections cannot be negative");
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections the pool can open
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param maxSize The maximum pool size
+         * @return This {@link Settings} instance
+         */
+        public Settings maxSize(int maxSize) {
+            Validate.isTrue(maxSize > 0, "Maximum pool size must be greater than 0");
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets how long a connection may sit idle before being evicted
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param time The amount of time
+         * @param unit The {@link TimeUnit} of the {@code time} parameter
+         * @return This {@link Settings} instance
+         */
+        public Settings idleTimeout(long time, TimeUnit unit) {
+            this.idleTimeoutMS = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Sets how long {@link ConnectionPool#borrow()} will wait for a
+         * connection before failing
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param time The amount of time
+         * @param unit The {@link TimeUnit} of the {@code time} parameter
+         * @return This {@link Settings} instance
+         */
+        public Settings borrowTimeout(long time, TimeUnit unit) {
+            this.borrowTimeoutMS = unit.toMillis(time);
+            return this;
+        }
+
+        /**
+         * Sets the timeout given to the validation ping of an idle connection
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param seconds The timeout in seconds
+         * @return This {@link Settings} instance
+         */
+        public Settings validationTimeout(int seconds) {
+            Validate.isTrue(seconds >= 0, "Validation timeout cannot be negative");
+            this.validationTimeoutSeconds = seconds;
+            return this;
+        }
+
+        /**
+         * Sets the number of prepared statements to cache per connection,
+         * keyed by their SQL text. A size of 0 disables caching
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @see StatementCache
+         * @param size The per-connection statement cache size
+         * @return This {@link Settings} instance
+         */
+        public Settings statementCacheSize(int size) {
+            Validate.isTrue(size >= 0, "Statement cache size cannot be negative");
+            this.statementCacheSize = size;
+            return this;
+        }
+
+        /**
+         * Sets an operation to run upon every newly opened physical
+         * connection, such as setting session variables
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param initializer The {@link SQLConsumer} to apply
+         * @return This {@link Settings} instance
+         */
+        public Settings initializer(SQLConsumer<? super Connection> initializer) {
+            this.initializer = initializer;
+            return this;
+        }
+
+        /**
+         * Returns the minimum number of idle connections
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The minimum number of idle connections
+         */
+        public int getMinIdle() {
+            return this.minIdle;
+        }
+
+        /**
+         * Returns the maximum number of connections
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The maximum pool size
+         */
+        public int getMaxSize() {
+            return this.maxSize;
+        }
+
+        /**
+         * Returns how long {@link ConnectionPool#borrow()} will wait for a
+         * connection before failing
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The borrow timeout in milliseconds
+         */
+        public long getBorrowTimeoutMS() {
+            return this.borrowTimeoutMS;
+        }
+
+        /**
+         * Returns a copy of these settings, which can be changed without
+         * affecting this instance
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return A new {@link Settings} with the same values
+         */
+        Settings copy() {
+            Settings back = new Settings();
+            back.minIdle = this.minIdle;
+            back.maxSize = this.maxSize;
+            back.idleTimeoutMS = this.idleTimeoutMS;
+            back.borrowTimeoutMS = this.borrowTimeoutMS;
+            back.validationTimeoutSeconds = this.validationTimeoutSeconds;
+            back.statementCacheSize = this.statementCacheSize;
+            back.initializer = this.initializer;
+            return back;
+        }
+
+    }
+
+}
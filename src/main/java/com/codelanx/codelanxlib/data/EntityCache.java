@@ -0,0 +1,625 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.util.cache.ExpiringMap;
+import com.codelanx.codelanxlib.util.cache.ExpiringMap.ExpirationPolicy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.apache.commons.lang.Validate;
+
+/**
+ * A keyed cache of entities which sits in front of an {@link SQLDataType}.
+ * Lookups which miss the cache are loaded from the database and cached
+ * (read-through), and updates are written either immediately
+ * (write-through) or via a {@link WriteBehindQueue} (write-behind). Keys which
+ * have no row are remembered for a shorter period, so repeated lookups of
+ * absent entities do not reach the database:
+ * <br><br>{@code
+ * EntityCache<UUID, PlayerData> cache = EntityCache.<UUID, PlayerData>builder(db)
+ *     .keyMapper(UUIDFetcher::toBytes)
+ *     .loader("SELECT * FROM players WHERE uuid = ?", BeanMapper.of(PlayerData.class))
+ *     .writeThrough("REPLACE INTO players (uuid, coins) VALUES (?, ?)",
+ *         p -> UUIDFetcher.toBytes(p.getUUID()), PlayerData::getCoins)
+ *     .build();
+ * }
+ * <br><br>
+ * Loads are blocking, so lookups from the main thread should be made through
+ * {@link EntityCache#getAsync(Object)}. Concurrent lookups of the same key
+ * share a single load
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ * 
+ * @param <K> The type of the entity keys
+ * @param <V> The type of the entities
+ */
+public class EntityCache<K, V> {
+
+    private static final Object ABSENT = new Object();
+    private final SQLDataType db;
+    private final Function<? super K, ?> keyMapper;
+    private final String loadSQL;
+    private final RowMapper<? extends V> mapper;
+    private final String bulkSQL;
+    private final Function<? super V, ? extends K> keyOf;
+    private final String writeSQL;
+    private final Function<V, ?>[] writeMappers;
+    private final WriteBehindQueue<?, V> writeBehind;
+    private final long negativeNanos;
+    private final ExpiringMap<K, Object> entries;
+    private final Map<K, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new {@link EntityCache} from a {@link Builder}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param builder The {@link Builder} used for constructing this cache
+     */
+    private EntityCache(Builder<K, V> builder) {
+        this.db = builder.db;
+        this.keyMapper = builder.keyMapper;
+        this.loadSQL = builder.loadSQL;
+        this.mapper = builder.mapper;
+        this.bulkSQL = builder.bulkSQL;
+        this.keyOf = builder.keyOf;
+        this.writeSQL = builder.writeSQL;
+        this.writeMappers = builder.writeMappers;
+        this.writeBehind = builder.writeBehind;
+        this.negativeNanos = builder.negativeNanos;
+        this.entries = ExpiringMap.<K, Object>builder()
+                .expiration(builder.expirationNanos, TimeUnit.NANOSECONDS)
+                .variableExpiration()
+                .onExpiry((K k, Object v) -> {
+                    if (v != EntityCache.ABSENT) {
+                        this.evictions.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns a new {@link Builder} for an {@link EntityCache}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <K> The type of the entity keys
+     * @param <V> The type of the entities
+     * @param db The {@link SQLDataType} to load from and write to
+     * @return A new {@link Builder}
+     */
+    public static <K, V> Builder<K, V> builder(SQLDataType db) {
+        return new Builder<>(db);
+    }
+
+    /**
+     * Returns the entity for the passed key, loading it from the database if
+     * it is not cached
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The key of the entity
+     * @return The entity, or {@code null} if no row exists for the key or the
+     *         load failed
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        Validate.notNull(key, "Key cannot be null");
+        Object val = this.entries.get(key);
+        if (val != null) {
+            this.hits.incrementAndGet();
+            return val == EntityCache.ABSENT ? null : (V) val;
+        }
+        this.misses.incrementAndGet();
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = this.loading.putIfAbsent(key, mine);
+        if (running != null) {
+            val = running.join();
+        } else {
+            try {
+                val = this.load(key);
+                mine.complete(val);
+            } catch (RuntimeException ex) {
+                mine.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                this.loading.remove(key, mine);
+            }
+        }
+        return val == EntityCache.ABSENT || val == null ? null : (V) val;
+    }
+
+    /**
+     * Asynchronously retrieves the entity for the passed key upon the
+     * {@link SQLExecutor}. Cached entities are returned immediately
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see EntityCache#get(Object)
+     * @param key The key of the entity
+     * @return A {@link CompletableFuture} of the entity
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<V> getAsync(K key) {
+        Object val = this.entries.get(key);
+        if (val != null) {
+            this.hits.incrementAndGet();
+            return CompletableFuture.completedFuture(val == EntityCache.ABSENT ? null : (V) val);
+        }
+        return SQLExecutor.supply(() -> this.get(key));
+    }
+
+    /**
+     * Returns the entity for the passed key only if it is already cached
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The key of the entity
+     * @return The cached entity, or {@code null} if not cached or absent
+     */
+    @SuppressWarnings("unchecked")
+    public V getIfPresent(K key) {
+        Object val = this.entries.get(key);
+        return val == EntityCache.ABSENT ? null : (V) val;
+    }
+
+    /**
+     * Loads a single entity and caches the result
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The key of the entity
+     * @return The entity, {@link EntityCache#ABSENT} if no row exists, or
+     *         {@code null} if the load failed
+     */
+    private Object load(K key) {
+        long start = System.nanoTime();
+        SQLResponse<? extends V> resp = this.db.query(this.mapper.first(), this.loadSQL, this.keyMapper.apply(key));
+        this.recordLoad(System.nanoTime() - start);
+        if (resp.getException() != null) {
+            return null;
+        }
+        V value = resp.getResponse();
+        //A put made while loading is newer than the row which was read
+        Object current = value != null ? this.entries.putIfAbsent(key, value) : this.putAbsent(key);
+        if (current != null) {
+            return current;
+        }
+        return value != null ? value : EntityCache.ABSENT;
+    }
+
+    /**
+     * Loads every passed key which is not already cached using the bulk
+     * loading statement, in chunks of up to 500 keys. Keys without a row are
+     * cached as absent
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param keys The keys to load
+     * @return The number of entities loaded
+     * @throws IllegalStateException If no bulk loader was configured
+     */
+    public int preload(Collection<? extends K> keys) {
+        if (this.bulkSQL == null) {
+            throw new IllegalStateException("No bulk loader was configured");
+        }
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            if (!this.entries.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        int loaded = 0;
+        for (int i = 0; i < missing.size(); i += 500) {
+            List<K> chunk = missing.subList(i, Math.min(missing.size(), i + 500));
+            Object[] params = new Object[chunk.size()];
+            for (int w = 0; w < params.length; w++) {
+                params[w] = this.keyMapper.apply(chunk.get(w));
+            }
+            String sql = String.format(this.bulkSQL, String.join(",", Collections.nCopies(params.length, "?")));
+            long start = System.nanoTime();
+            SQLResponse<? extends List<? extends V>> resp = this.db.query(this.mapper.all(), sql, params);
+            this.recordLoad(System.nanoTime() - start);
+            if (resp.getException() != null) {
+                continue;
+            }
+            Set<K> found = new HashSet<>();
+            for (V value : resp.getResponse()) {
+                K key = this.keyOf.apply(value);
+                found.add(key);
+                if (this.entries.putIfAbsent(key, value) == null) {
+                    loaded++;
+                }
+            }
+            chunk.stream().filter(k -> !found.contains(k)).forEach(this::putAbsent);
+        }
+        return loaded;
+    }
+
+    /**
+     * Asynchronously preloads the passed keys upon the {@link SQLExecutor}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see EntityCache#preload(Collection)
+     * @param keys The keys to load
+     * @return A {@link CompletableFuture} of the number of entities loaded
+     */
+    public CompletableFuture<Integer> preloadAsync(Collection<? extends K> keys) {
+        return SQLExecutor.supply(() -> this.preload(keys));
+    }
+
+    /**
+     * Caches the passed entity and writes it to the database, either
+     * immediately or through the configured {@link WriteBehindQueue}. Should a
+     * write-through fail, the key is invalidated so that the next lookup
+     * reloads the stored row
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The key of the entity
+     * @param value The entity to store
+     */
+    public void put(K key, V value) {
+        Validate.notNull(key, "Key cannot be null");
+        Validate.notNull(value, "Value cannot be null");
+        this.entries.put(key, value);
+        if (this.writeBehind != null) {
+            this.writeBehind.add(value);
+        } else if (this.writeSQL != null) {
+            Object[] params = new Object[this.writeMappers.length];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = this.writeMappers[i].apply(value);
+            }
+            if (this.db.update(this.writeSQL, params).getException() != null) {
+                this.entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes the passed key from the cache, without touching the database
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The key to invalidate
+     */
+    public void invalidate(K key) {
+        this.entries.remove(key);
+    }
+
+    /**
+     * Removes every entry from the cache, without touching the database
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public void invalidateAll() {
+        this.entries.clear();
+    }
+
+    /**
+     * Remembers that the passed key has no row, unless it was cached in the
+     * meantime. Absent keys expire a fixed time after being cached, however
+     * often they are looked up, so that rows inserted elsewhere are found
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param key The absent key
+     * @return The value cached in the meantime, or {@code null}
+     */
+    private Object putAbsent(K key) {
+        if (this.negativeNanos <= 0) {
+            return this.entries.get(key);
+        }
+        return this.entries.putIfAbsent(key, EntityCache.ABSENT,
+                ExpirationPolicy.CREATED, this.negativeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordLoad(long nanos) {
+        this.loads.incrementAndGet();
+        this.loadNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Returns the number of cached keys, including those cached as absent
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of cached keys
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of cache hits
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of lookups which required a load
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of cache misses
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The hit ratio, between 0 and 1
+     */
+    public double getHitRatio() {
+        long h = this.hits.get();
+        long total = h + this.misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Returns the number of queries made to load entities, including bulk
+     * loads
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of loads
+     */
+    public long getLoadCount() {
+        return this.loads.get();
+    }
+
+    /**
+     * Returns the average time taken by a load query
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param unit The {@link TimeUnit} to return the time in
+     * @return The average load time
+     */
+    public long getAverageLoadTime(TimeUnit unit) {
+        long count = this.loads.get();
+        return count == 0 ? 0 : unit.convert(this.loadNanos.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of entities which have expired from the cache
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of evictions
+     */
+    public long getEvictionCount() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Builds an {@link EntityCache}
+     * 
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     * 
+     * @param <K> The type of the entity keys
+     * @param <V> The type of the entities
+     */
+    public static final class Builder<K, V> {
+
+        private final SQLDataType db;
+        private Function<? super K, ?> keyMapper = Function.identity();
+        private String loadSQL;
+        private RowMapper<? extends V> mapper;
+        private String bulkSQL;
+        private Function<? super V, ? extends K> keyOf;
+        private String writeSQL;
+        private Function<V, ?>[] writeMappers;
+        private WriteBehindQueue<?, V> writeBehind;
+        private long expirationNanos = TimeUnit.MINUTES.toNanos(10);
+        private long negativeNanos = TimeUnit.SECONDS.toNanos(30);
+
+        private Builder(SQLDataType db) {
+            Validate.notNull(db, "SQLDataType cannot be null");
+            this.db = db;
+        }
+
+        /**
+         * Sets the function which converts a key into the SQL parameter used
+         * to look it up, such as {@code UUIDFetcher::toBytes}. Defaults to the
+         * key itself
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param keyMapper The key conversion function
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, V> keyMapper(Function<? super K, ?> keyMapper) {
+            Validate.notNull(keyMapper, "Key mapper cannot be null");
+            this.keyMapper = keyMapper;
+            return this;
+        }
+
+        /**
+         * Sets the query which loads a single entity. The query takes the
+         * mapped key as its only parameter, and the first row is mapped into
+         * the entity
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param sql The query to load a single entity
+         * @param mapper The {@link RowMapper} converting a row to an entity
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, V> loader(String sql, RowMapper<? extends V> mapper) {
+            this.loadSQL = sql;
+            this.mapper = mapper;
+            return this;
+        }
+
+        /**
+         * Sets the query used by {@link EntityCache#preload(Collection)}. The
+         * query must contain a single {@code %s}, which is replaced with the
+         * placeholders for the keys, such as
+         * {@code SELECT * FROM players WHERE uuid IN (%s)}. Rows are mapped
+         * with the mapper of {@link Builder#loader(String, RowMapper)}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param sql The query template to load many entities
+         * @param keyOf A function returning the key of a loaded entity
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, V> bulkLoader(String sql, Function<? super V, ? extends K> keyOf) {
+            this.bulkSQL = sql;
+            this.keyOf = keyOf;
+            return this;
+        }
+
+        /**
+         * Writes updated entities immediately, by running the passed
+         * statement with parameters mapped in the same manner as
+         * {@link SQLDataType#batchUpdate(String, int, Collection, Function...)}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param sql The statement to write an entity
+         * @param mappers A series of functions for mapping entities to params
+         * @return This {@link Builder} instance
+         */
+        @SafeVarargs
+        public final Builder<K, V> writeThrough(String sql, Function<V, ?>... mappers) {
+            this.writeSQL = sql;
+            this.writeMappers = mappers;
+            this.writeBehind = null;
+            return this;
+        }
+
+        /**
+         * Writes updated entities through the passed {@link WriteBehindQueue}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param queue The {@link WriteBehindQueue} to add entities to
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, V> writeBehind(WriteBehindQueue<?, V> queue) {
+            this.writeBehind = queue;
+            this.writeSQL = null;
+            return this;
+        }
+
+        /**
+         * Sets how long an entity stays cached after it was last accessed.
+         * Defaults to 10 minutes
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param time The amount of time
+         * @param unit The {@link TimeUnit} of the {@code time} parameter
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, V> expiration(long time, TimeUnit unit) {
+            this.expirationNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Sets how long a key without a row is remembered as absent, or 0 to
+         * disable negative caching. Defaults to 30 seconds
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param time The amount of time
+         * @param unit The {@link TimeUnit} of the {@code time} parameter
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, V> negativeExpiration(long time, TimeUnit unit) {
+            this.negativeNanos = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Builds the {@link EntityCache}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The new {@link EntityCache}
+         * @throws IllegalArgumentException If no loader was set
+         */
+        public EntityCache<K, V> build() {
+            Validate.isTrue(this.loadSQL != null && this.mapper != null, "A loader is required");
+            return new EntityCache<>(this);
+        }
+
+    }
+
+}
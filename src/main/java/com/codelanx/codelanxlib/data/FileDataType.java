@@ -19,7 +19,9 @@
  */
 package com.codelanx.codelanxlib.data;
 
+import com.codelanx.codelanxlib.data.types.Binary;
 import com.codelanx.codelanxlib.data.types.Json;
+import com.codelanx.codelanxlib.data.types.MappedBinary;
 import com.codelanx.codelanxlib.data.types.Yaml;
 import com.codelanx.codelanxlib.logging.Debugger;
 import com.codelanx.codelanxlib.logging.Logging;
@@ -27,6 +29,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Opens and loads a file into memory using the appropriate data type. This
@@ -35,7 +38,7 @@ import java.lang.reflect.InvocationTargetException;
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public interface FileDataType extends DataType {
 
@@ -107,6 +110,54 @@ public interface FileDataType extends DataType {
      */
     public void save(File target) throws IOException;
 
+    /**
+     * Snapshots the information in memory and saves it to the file specified
+     * upon a background thread. Saves of the same file made in quick
+     * succession are coalesced into a single write
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see FileSaver
+     * @param target The file to save to
+     * @return A {@link CompletableFuture} which completes once the file has
+     *         been written
+     */
+    default public CompletableFuture<Void> saveAsync(File target) {
+        return FileSaver.save(this, target);
+    }
+
+    /**
+     * Returns a copy of the information in memory which is detached from this
+     * {@link FileDataType}, such that it can be saved upon another thread
+     * while this instance continues to be modified. Implementations which do
+     * not support this return themselves, in which case the caller must not
+     * modify this instance until a background save completes
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A detached copy of this {@link FileDataType}
+     */
+    default public FileDataType snapshot() {
+        return this;
+    }
+
+    /**
+     * Returns the error which occurred while reading this data from its file,
+     * if any. Implementations which cannot read a file load as empty instead
+     * of failing, so this tells an empty file apart from an unreadable one
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The error from loading the file, or {@code null} if it was read
+     *         successfully or has not been read
+     */
+    default public Exception getLoadError() {
+        return null;
+    }
+
     /**
      * Returns a new instance of a {@link FileDataType} based on the passed
      * class instance.
@@ -141,7 +192,7 @@ public interface FileDataType extends DataType {
      * or {@code null} if none is matched
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @param in The string to parse
      * @return A relevant {@link FileDataType} class, or {@code null}
@@ -153,6 +204,10 @@ public interface FileDataType extends DataType {
                 return Json.class;
             case "yaml":
                 return Yaml.class;
+            case "binary":
+                return Binary.class;
+            case "mapped":
+                return MappedBinary.class;
         }
         return null;
     }
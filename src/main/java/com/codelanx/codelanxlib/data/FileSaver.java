@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.logging.Debugger;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Façade for the background thread which writes {@link FileDataType} saves to
+ * disk. Saving through this class takes a {@link FileDataType#snapshot()} of
+ * the data on the calling thread and marks the target file dirty; the write
+ * itself happens after a short debounce window, during which any further
+ * saves of the same file replace the pending snapshot rather than causing
+ * another write. An example usage would be:
+ * <br><br>{@code
+ * FileSaver.save(data, file).whenComplete((v, ex) -> {
+ *     if (ex != null) {
+ *         //handle the failed write
+ *     }
+ * });
+ * }
+ * <br><br>
+ * All writes happen upon a single thread, in the order files were first
+ * marked dirty. Pending saves are flushed when CodelanxLib is disabled, and
+ * plugins which save during their own disable should call
+ * {@link FileSaver#flush()} to wait on their writes
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public final class FileSaver {
+
+    private static final Map<File, Pending> PENDING = new HashMap<>();
+    private static final AtomicLong SAVES = new AtomicLong();
+    private static final AtomicLong COALESCED = new AtomicLong();
+    private static final AtomicLong WRITES = new AtomicLong();
+    private static final AtomicLong WRITE_NANOS = new AtomicLong();
+    private static final AtomicLong MAX_WRITE_NANOS = new AtomicLong();
+    private static final AtomicLong FAILURES = new AtomicLong();
+    private static volatile long debounceMillis = 1000;
+    private static ScheduledThreadPoolExecutor es;
+
+    private FileSaver() {
+    }
+
+    /**
+     * Snapshots the passed {@link FileDataType} and schedules it to be written
+     * to the passed {@link File}. If a write of the same file is already
+     * pending, the snapshot replaces the pending one and the existing future
+     * is returned
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param data The {@link FileDataType} to save
+     * @param target The file to save to
+     * @return A {@link CompletableFuture} which completes once the data has
+     *         been written, or completes exceptionally if the write failed
+     */
+    public static CompletableFuture<Void> save(FileDataType data, File target) {
+        Validate.notNull(data, "FileDataType cannot be null");
+        Validate.notNull(target, "Target file cannot be null");
+        File key = target.getAbsoluteFile();
+        FileSaver.SAVES.incrementAndGet();
+        synchronized (FileSaver.PENDING) {
+            //snapshot under the lock, so racing saves are queued in the order taken
+            FileDataType snapshot = data.snapshot();
+            Pending p = FileSaver.PENDING.get(key);
+            if (p != null) {
+                p.snapshot = snapshot;
+                FileSaver.COALESCED.incrementAndGet();
+                return p.future;
+            }
+            p = new Pending(snapshot);
+            FileSaver.PENDING.put(key, p);
+            FileSaver.executor().schedule(() -> FileSaver.write(key), FileSaver.debounceMillis, TimeUnit.MILLISECONDS);
+            return p.future;
+        }
+    }
+
+    /**
+     * Writes every pending save immediately, and waits for them to finish
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public static void flush() {
+        List<File> keys;
+        synchronized (FileSaver.PENDING) {
+            if (FileSaver.PENDING.isEmpty()) {
+                return;
+            }
+            keys = new ArrayList<>(FileSaver.PENDING.keySet());
+        }
+        try {
+            FileSaver.executor().submit(() -> keys.forEach(FileSaver::write)).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
+            Debugger.error(ex, "Error flushing %d pending file saves", keys.size());
+        }
+    }
+
+    /**
+     * Sets how long a file waits after being marked dirty before it is
+     * written, during which further saves are coalesced. Defaults to one
+     * second
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param time The length of the debounce window
+     * @param unit The {@link TimeUnit} of the window
+     */
+    public static void setDebounce(long time, TimeUnit unit) {
+        Validate.isTrue(time >= 0, "Debounce window cannot be negative");
+        FileSaver.debounceMillis = unit.toMillis(time);
+    }
+
+    /**
+     * Returns the number of files waiting to be written
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of pending saves
+     */
+    public static int getPendingCount() {
+        synchronized (FileSaver.PENDING) {
+            return FileSaver.PENDING.size();
+        }
+    }
+
+    /**
+     * Returns the number of saves requested through this class
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of saves requested
+     */
+    public static long getSaveCount() {
+        return FileSaver.SAVES.get();
+    }
+
+    /**
+     * Returns the number of saves which were merged into an already pending
+     * write instead of causing their own
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of coalesced saves
+     */
+    public static long getCoalescedCount() {
+        return FileSaver.COALESCED.get();
+    }
+
+    /**
+     * Returns the number of disk writes performed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of writes
+     */
+    public static long getWriteCount() {
+        return FileSaver.WRITES.get();
+    }
+
+    /**
+     * Returns the number of writes which failed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of failed writes
+     */
+    public static long getFailureCount() {
+        return FileSaver.FAILURES.get();
+    }
+
+    /**
+     * Returns the average time taken by a disk write
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param unit The {@link TimeUnit} to return the duration in
+     * @return The average write duration
+     */
+    public static long getAverageWriteTime(TimeUnit unit) {
+        long count = FileSaver.WRITES.get();
+        return count == 0 ? 0 : unit.convert(FileSaver.WRITE_NANOS.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest time taken by a disk write
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param unit The {@link TimeUnit} to return the duration in
+     * @return The longest write duration
+     */
+    public static long getMaxWriteTime(TimeUnit unit) {
+        return unit.convert(FileSaver.MAX_WRITE_NANOS.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Flushes all pending saves and stops the writer thread. The thread is
+     * restarted if another save is requested. Saves made while shutting down
+     * are written upon the calling thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public static void shutdown() {
+        FileSaver.flush();
+        ScheduledThreadPoolExecutor old;
+        Map<File, Pending> left;
+        synchronized (FileSaver.PENDING) {
+            //swap and drain together, so no save is scheduled upon the old thread
+            synchronized (FileSaver.class) {
+                old = FileSaver.es;
+                FileSaver.es = null;
+            }
+            left = new HashMap<>(FileSaver.PENDING);
+            FileSaver.PENDING.clear();
+        }
+        if (old != null) {
+            //let a running write finish, but drop the scheduled ones
+            old.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            old.shutdown();
+            try {
+                old.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        left.forEach(FileSaver::write);
+    }
+
+    /**
+     * Writes the pending snapshot for the passed file, if one still exists.
+     * Only ever called upon the writer thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param target The file to write
+     */
+    private static void write(File target) {
+        Pending p;
+        synchronized (FileSaver.PENDING) {
+            p = FileSaver.PENDING.remove(target);
+        }
+        if (p != null) {
+            FileSaver.write(target, p);
+        }
+    }
+
+    /**
+     * Writes a snapshot which has been removed from the pending saves, and
+     * completes its future
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param target The file to write
+     * @param p The {@link Pending} save to write
+     */
+    private static void write(File target, Pending p) {
+        long start = System.nanoTime();
+        try {
+            p.snapshot.save(target);
+            p.future.complete(null);
+        } catch (IOException | RuntimeException ex) {
+            FileSaver.FAILURES.incrementAndGet();
+            Debugger.error(ex, "Error saving file '%s'", target.getPath());
+            p.future.completeExceptionally(ex);
+        } finally {
+            long took = System.nanoTime() - start;
+            FileSaver.WRITES.incrementAndGet();
+            FileSaver.WRITE_NANOS.addAndGet(took);
+            FileSaver.MAX_WRITE_NANOS.accumulateAndGet(took, Math::max);
+        }
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor executor() {
+        if (FileSaver.es == null) {
+            FileSaver.es = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "CodelanxLib-FileSaver");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return FileSaver.es;
+    }
+
+    private static class Pending {
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile FileDataType snapshot;
+
+        public Pending(FileDataType snapshot) {
+            this.snapshot = snapshot;
+        }
+
+    }
+
+}
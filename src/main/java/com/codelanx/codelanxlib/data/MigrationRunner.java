@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.logging.Debugger;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import org.apache.commons.lang.Validate;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Applies versioned schema migrations to an {@link SQLDataType}. Migrations
+ * are read from the plugin's jar, from files in a resource folder named in the
+ * form {@code V<version>__<description>.sql}, such as
+ * {@code migrations/V2__add_homes.sql}, and may also be added directly:
+ * <br><br>{@code
+ * SQLResponse<Integer> applied = MigrationRunner.builder(db, plugin)
+ *     .step(3, "index names", "CREATE INDEX idx_name ON players (name)")
+ *     .build()
+ *     .migrate();
+ * }
+ * <br><br>
+ * Applied versions are recorded along with a CRC32 checksum of their script in
+ * a table shared by all plugins, keyed by plugin name. Each pending migration
+ * is applied in its own transaction, in version order. When every migration
+ * has already been applied, only the version table is read, so startup time
+ * does not grow with the size of the schema. Note that MySQL implicitly
+ * commits DDL statements, so a failed step containing DDL may be partially
+ * applied up to, but not past, the statement which failed
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public final class MigrationRunner {
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private final SQLDataType db;
+    private final String name;
+    private final String table;
+    private final Map<Integer, Step> steps;
+
+    /**
+     * Creates a new {@link MigrationRunner} from a {@link Builder}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param builder The {@link Builder} used for constructing this runner
+     */
+    private MigrationRunner(Builder builder) {
+        this.db = builder.db;
+        this.name = builder.name;
+        this.table = builder.table;
+        this.steps = builder.steps;
+    }
+
+    /**
+     * Returns a new {@link Builder} for a {@link MigrationRunner}, which reads
+     * migrations from the {@code migrations} folder of the plugin's jar
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param db The {@link SQLDataType} to migrate
+     * @param plugin The {@link Plugin} owning the migrations
+     * @return A new {@link Builder}
+     */
+    public static Builder builder(SQLDataType db, Plugin plugin) {
+        return new Builder(db, plugin.getName()).resources(plugin, "migrations");
+    }
+
+    /**
+     * Returns a new {@link Builder} for a {@link MigrationRunner} with no
+     * migrations added
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param db The {@link SQLDataType} to migrate
+     * @param name The name the applied versions are recorded under
+     * @return A new {@link Builder}
+     */
+    public static Builder builder(SQLDataType db, String name) {
+        return new Builder(db, name);
+    }
+
+    /**
+     * Applies every pending migration in version order, stopping at the
+     * first failure
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return An {@link SQLResponse} containing the number of migrations
+     *         applied, and any exception that occurred
+     * @throws IllegalStateException If an applied migration no longer matches
+     *                               its recorded checksum
+     */
+    public SQLResponse<Integer> migrate() {
+        SQLResponse<Integer> resp = new SQLResponse<>();
+        resp.setResponse(0);
+        SQLResponse<?> created = this.db.update("CREATE TABLE IF NOT EXISTS " + this.table + " ("
+                + "plugin VARCHAR(64) NOT NULL, version INT NOT NULL, description VARCHAR(255), "
+                + "checksum BIGINT NOT NULL, applied_at BIGINT NOT NULL, PRIMARY KEY (plugin, version))");
+        if (created.getException() != null) {
+            resp.setException(created.getException());
+            return resp;
+        }
+        //Read through operate, which runs upon the primary rather than a replica
+        SQLResponse<Map<Integer, Long>> applied = this.db.operate(stmt -> {
+            Map<Integer, Long> back = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    back.put(rs.getInt(1), rs.getLong(2));
+                }
+            }
+            return back;
+        }, "SELECT version, checksum FROM " + this.table + " WHERE plugin = ?", this.name);
+        if (applied.getException() != null) {
+            resp.setException(applied.getException());
+            return resp;
+        }
+        List<Step> pending = new ArrayList<>();
+        for (Step step : this.steps.values()) {
+            Long checksum = applied.getResponse().get(step.version);
+            if (checksum == null) {
+                pending.add(step);
+            } else if (checksum != step.checksum) {
+                throw new IllegalStateException(String.format("Migration V%d of %s was modified after being applied",
+                        step.version, this.name));
+            }
+        }
+        if (pending.isEmpty()) {
+            return resp;
+        }
+        int count = 0;
+        try {
+            for (Step step : pending) {
+                SQLResponse<?> result = this.db.transaction(1, tx -> {
+                    //stop at the first failure, as DDL commits implicitly upon MySQL
+                    SQLResponse<?> r;
+                    for (String stmt : MigrationRunner.split(step.sql)) {
+                        r = tx.update(stmt);
+                        if (r.getException() != null) {
+                            throw r.getException();
+                        }
+                    }
+                    r = tx.update("INSERT INTO " + this.table + " (plugin, version, description, checksum, applied_at) "
+                            + "VALUES (?, ?, ?, ?, ?)", this.name, step.version, step.description,
+                            step.checksum, System.currentTimeMillis());
+                    if (r.getException() != null) {
+                        throw r.getException();
+                    }
+                    return null;
+                });
+                if (result.getException() != null) {
+                    Debugger.print("Migration V%d of %s failed", step.version, this.name);
+                    resp.setException(result.getException());
+                    break;
+                }
+                count++;
+            }
+        } finally {
+            SchemaCache schema = this.db.getSchema();
+            if (schema != null) {
+                schema.invalidate();
+            }
+        }
+        Debugger.print("Applied %d migration(s) for %s", count, this.name);
+        resp.setResponse(count);
+        return resp;
+    }
+
+    /**
+     * Splits a script into its individual statements on semicolons, ignoring
+     * those within quotes or comments
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param sql The script to split
+     * @return The non-empty statements of the script
+     */
+    static List<String> split(String sql) {
+        List<String> back = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            char next = i + 1 < sql.length() ? sql.charAt(i + 1) : 0;
+            if (quote != 0) {
+                current.append(c);
+                if (c == '\\' && next != 0) {
+                    current.append(next);
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '-' && next == '-') {
+                while (i < sql.length() && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                current.append('\n');
+            } else if (c == '/' && next == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? sql.length() : end + 1;
+                current.append(' ');
+            } else if (c == ';') {
+                MigrationRunner.addStatement(back, current);
+            } else {
+                if (c == '\'' || c == '"' || c == '`') {
+                    quote = c;
+                }
+                current.append(c);
+            }
+        }
+        MigrationRunner.addStatement(back, current);
+        return back;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String stmt = current.toString().trim();
+        if (!stmt.isEmpty()) {
+            statements.add(stmt);
+        }
+        current.setLength(0);
+    }
+
+    /**
+     * A single versioned migration
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    private static final class Step {
+
+        private final int version;
+        private final String description;
+        private final String sql;
+        private final long checksum;
+
+        public Step(int version, String description, String sql) {
+            this.version = version;
+            this.description = description;
+            this.sql = sql.replace("\r\n", "\n");
+            CRC32 crc = new CRC32();
+            crc.update(this.sql.getBytes(StandardCharsets.UTF_8));
+            this.checksum = crc.getValue();
+        }
+
+    }
+
+    /**
+     * Builds a {@link MigrationRunner}
+     * 
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     */
+    public static final class Builder {
+
+        private final SQLDataType db;
+        private final String name;
+        private final Map<Integer, Step> steps = new TreeMap<>();
+        private String table = "codelanx_migrations";
+
+        private Builder(SQLDataType db, String name) {
+            Validate.notNull(db, "SQLDataType cannot be null");
+            Validate.notNull(name, "Name cannot be null");
+            this.db = db;
+            this.name = name;
+        }
+
+        /**
+         * Adds a migration
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param version The version of the migration, unique to this runner
+         * @param description A short description of the migration
+         * @param sql The script of the migration, with statements separated by
+         *            semicolons
+         * @return This {@link Builder} instance
+         * @throws IllegalArgumentException If the version was already added
+         */
+        public Builder step(int version, String description, String sql) {
+            Validate.notNull(sql, "Migration script cannot be null");
+            Validate.isTrue(!this.steps.containsKey(version), "Duplicate migration version: " + version);
+            this.steps.put(version, new Step(version, description, sql));
+            return this;
+        }
+
+        /**
+         * Adds every migration script within a folder of the plugin's jar.
+         * Scripts must be named in the form
+         * {@code V<version>__<description>.sql}, and other files are ignored
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param plugin The {@link Plugin} whose jar contains the scripts
+         * @param folder The folder within the jar
+         * @return This {@link Builder} instance
+         * @throws IllegalStateException If the plugin's jar cannot be read
+         */
+        public Builder resources(Plugin plugin, String folder) {
+            String prefix = folder.endsWith("/") ? folder : folder + "/";
+            File source;
+            try {
+                source = new File(plugin.getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+            } catch (URISyntaxException ex) {
+                throw new IllegalStateException("Unable to locate the jar of " + plugin.getName(), ex);
+            }
+            try {
+                if (source.isDirectory()) {
+                    File[] files = new File(source, prefix).listFiles();
+                    if (files != null) {
+                        for (File f : files) {
+                            this.resource(f.getName(), Files.readAllBytes(f.toPath()));
+                        }
+                    }
+                    return this;
+                }
+                try (JarFile jar = new JarFile(source)) {
+                    Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        JarEntry ent = entries.nextElement();
+                        String path = ent.getName();
+                        if (ent.isDirectory() || !path.startsWith(prefix) || path.indexOf('/', prefix.length()) >= 0) {
+                            continue;
+                        }
+                        try (InputStream in = jar.getInputStream(ent)) {
+                            this.resource(path.substring(prefix.length()), Builder.read(in));
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                throw new IllegalStateException("Unable to read migrations of " + plugin.getName(), ex);
+            }
+            return this;
+        }
+
+        private void resource(String fileName, byte[] content) {
+            Matcher m = MigrationRunner.FILE_NAME.matcher(fileName);
+            if (m.matches()) {
+                this.step(Integer.parseInt(m.group(1)), m.group(2).replace('_', ' '),
+                        new String(content, StandardCharsets.UTF_8));
+            }
+        }
+
+        private static byte[] read(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+
+        /**
+         * Sets the table applied versions are recorded in. Defaults to
+         * {@code codelanx_migrations}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param table The name of the version table
+         * @return This {@link Builder} instance
+         */
+        public Builder table(String table) {
+            Validate.notNull(table, "Table cannot be null");
+            this.table = table;
+            return this;
+        }
+
+        /**
+         * Builds the {@link MigrationRunner}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The new {@link MigrationRunner}
+         */
+        public MigrationRunner build() {
+            return new MigrationRunner(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.util.auth.UUIDFetcher;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Binds parameters to a {@link PreparedStatement} using the typed setters of
+ * the statement, rather than boxing every value for
+ * {@link PreparedStatement#setObject(int, Object)}. Primitive values are kept
+ * in primitive arrays, and {@link UUID UUIDs} are written into reused
+ * {@code BINARY(16)} buffers, so a binder which is cleared and refilled for
+ * each operation does not allocate:
+ * <br><br>{@code
+ * private final ParamBinder binder = new ParamBinder();
+ * 
+ * db.update("UPDATE stats SET kills = ? WHERE uuid = ?",
+ *     this.binder.clear().bindInt(kills).bindUuidBytes(uuid));
+ * }
+ * <br><br>
+ * A binder holds its values until it is cleared, and so may be reused for
+ * repeated operations with the same parameters. Binders are not thread-safe
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public final class ParamBinder {
+
+    private static final byte OBJECT = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte BYTES = 6;
+    private static final byte NULL = 7;
+    private static final Object[] NO_PARAMS = new Object[0];
+    private byte[] types;
+    private long[] longs;
+    private double[] doubles;
+    private Object[] objects;
+    private byte[][] uuids;
+    private Object[] raw;
+    private int size = 0;
+
+    /**
+     * Creates a new, empty {@link ParamBinder}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public ParamBinder() {
+        this(8);
+    }
+
+    /**
+     * Creates a new, empty {@link ParamBinder} with room for the passed
+     * number of parameters before growing
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param capacity The initial number of parameters
+     */
+    public ParamBinder(int capacity) {
+        this.allocate(Math.max(1, capacity));
+    }
+
+    /**
+     * Creates an array-backed {@link ParamBinder}. The typed arrays are only
+     * allocated should the binder be cleared and refilled
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param raw The parameters to bind through
+     *            {@link PreparedStatement#setObject(int, Object)}
+     */
+    private ParamBinder(Object[] raw) {
+        this.raw = raw;
+    }
+
+    /**
+     * Returns a {@link ParamBinder} which binds each of the passed objects
+     * through {@link PreparedStatement#setObject(int, Object)}, as the
+     * {@code Object...} operations of {@link SQLDataType} do. The array is
+     * used directly rather than copied
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param params The parameters to bind
+     * @return A new {@link ParamBinder} for the parameters
+     */
+    public static ParamBinder of(Object... params) {
+        return new ParamBinder(params == null ? ParamBinder.NO_PARAMS : params);
+    }
+
+    /**
+     * Removes all bound values, so that this binder can be reused
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder clear() {
+        this.raw = null;
+        if (this.objects != null) {
+            Arrays.fill(this.objects, 0, this.size, null);
+        }
+        this.size = 0;
+        return this;
+    }
+
+    /**
+     * Returns the number of bound parameters
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of parameters
+     */
+    public int size() {
+        return this.raw != null ? this.raw.length : this.size;
+    }
+
+    /**
+     * Binds the next parameter as an {@code int}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The value to bind
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindInt(int value) {
+        int index = this.next(ParamBinder.INT);
+        this.longs[index] = value;
+        return this;
+    }
+
+    /**
+     * Binds the next parameter as a {@code long}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The value to bind
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindLong(long value) {
+        int index = this.next(ParamBinder.LONG);
+        this.longs[index] = value;
+        return this;
+    }
+
+    /**
+     * Binds the next parameter as a {@code double}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The value to bind
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindDouble(double value) {
+        int index = this.next(ParamBinder.DOUBLE);
+        this.doubles[index] = value;
+        return this;
+    }
+
+    /**
+     * Binds the next parameter as a {@code boolean}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The value to bind
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindBoolean(boolean value) {
+        int index = this.next(ParamBinder.BOOLEAN);
+        this.longs[index] = value ? 1 : 0;
+        return this;
+    }
+
+    /**
+     * Binds the next parameter as a {@link String}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The value to bind, which may be {@code null}
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindString(String value) {
+        int index = this.next(ParamBinder.STRING);
+        this.objects[index] = value;
+        return this;
+    }
+
+    /**
+     * Binds the next parameter as a byte array
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The value to bind, which may be {@code null}
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindBytes(byte[] value) {
+        int index = this.next(ParamBinder.BYTES);
+        this.objects[index] = value;
+        return this;
+    }
+
+    /**
+     * Binds the next parameter as the 16 bytes of a {@link UUID}, in the
+     * layout of {@link UUIDFetcher#toBytes(UUID)}, for use with
+     * {@code BINARY(16)} columns. The bytes are written into a buffer which is
+     * reused each time this binder is refilled
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The value to bind
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindUuidBytes(UUID value) {
+        int index = this.next(ParamBinder.BYTES);
+        if (this.uuids == null || this.uuids.length <= index) {
+            this.uuids = Arrays.copyOf(this.uuids == null ? new byte[0][] : this.uuids, this.types.length);
+        }
+        if (this.uuids[index] == null) {
+            this.uuids[index] = new byte[16];
+        }
+        this.objects[index] = UUIDFetcher.toBytes(value, this.uuids[index]);
+        return this;
+    }
+
+    /**
+     * Binds the next parameter as an SQL {@code NULL}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param sqlType The {@link java.sql.Types} constant of the column
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindNull(int sqlType) {
+        int index = this.next(ParamBinder.NULL);
+        this.longs[index] = sqlType;
+        return this;
+    }
+
+    /**
+     * Binds the next parameter through
+     * {@link PreparedStatement#setObject(int, Object)}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The value to bind
+     * @return This {@link ParamBinder} instance
+     */
+    public ParamBinder bindObject(Object value) {
+        int index = this.next(ParamBinder.OBJECT);
+        this.objects[index] = value;
+        return this;
+    }
+
+    /**
+     * Reserves the next parameter slot, growing the arrays if needed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param type The type of the parameter
+     * @return The index of the reserved slot
+     * @throws IllegalStateException If this binder was made by
+     *                               {@link ParamBinder#of(Object...)} and has
+     *                               not been cleared
+     */
+    private int next(byte type) {
+        if (this.raw != null) {
+            throw new IllegalStateException("Cannot bind onto an array-backed binder without clearing it");
+        }
+        if (this.types == null) {
+            this.allocate(8);
+        } else if (this.size == this.types.length) {
+            int len = this.types.length * 2;
+            this.types = Arrays.copyOf(this.types, len);
+            this.longs = Arrays.copyOf(this.longs, len);
+            this.doubles = Arrays.copyOf(this.doubles, len);
+            this.objects = Arrays.copyOf(this.objects, len);
+        }
+        this.types[this.size] = type;
+        return this.size++;
+    }
+
+    private void allocate(int capacity) {
+        this.types = new byte[capacity];
+        this.longs = new long[capacity];
+        this.doubles = new double[capacity];
+        this.objects = new Object[capacity];
+    }
+
+    /**
+     * Sets the bound parameters upon a {@link PreparedStatement}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param stmt The {@link PreparedStatement} to bind to
+     * @throws SQLException If a parameter could not be set
+     */
+    public void apply(PreparedStatement stmt) throws SQLException {
+        if (this.raw != null) {
+            for (int i = 0; i < this.raw.length; i++) {
+                stmt.setObject(i + 1, this.raw[i]);
+            }
+            return;
+        }
+        for (int i = 0; i < this.size; i++) {
+            switch (this.types[i]) {
+                case ParamBinder.INT:
+                    stmt.setInt(i + 1, (int) this.longs[i]);
+                    break;
+                case ParamBinder.LONG:
+                    stmt.setLong(i + 1, this.longs[i]);
+                    break;
+                case ParamBinder.DOUBLE:
+                    stmt.setDouble(i + 1, this.doubles[i]);
+                    break;
+                case ParamBinder.BOOLEAN:
+                    stmt.setBoolean(i + 1, this.longs[i] != 0);
+                    break;
+                case ParamBinder.STRING:
+                    stmt.setString(i + 1, (String) this.objects[i]);
+                    break;
+                case ParamBinder.BYTES:
+                    stmt.setBytes(i + 1, (byte[]) this.objects[i]);
+                    break;
+                case ParamBinder.NULL:
+                    stmt.setNull(i + 1, (int) this.longs[i]);
+                    break;
+                default:
+                    stmt.setObject(i + 1, this.objects[i]);
+                    break;
+            }
+        }
+    }
+
+}
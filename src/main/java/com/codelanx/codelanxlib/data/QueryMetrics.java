@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.CodelanxLib;
+import com.codelanx.codelanxlib.util.Reflections;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.bukkit.plugin.java.JavaPlugin;
+
+/**
+ * Façade for recording the latency of {@link SQLDataType} operations. When
+ * enabled, every query, update, batch update and operation is timed into a
+ * histogram for its SQL template, along with whether it failed and, for
+ * updates, the number of rows updated. Lists of placeholders, such as
+ * {@code IN (?, ?, ?)} or the rows of a multi-row insert, are collapsed so
+ * that they share a single template.
+ * <br><br>
+ * Recording is lock-free, so it is safe to leave enabled on a live server.
+ * Operations slower than the configured threshold are logged along with the
+ * plugin which made them, if that can be determined
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public final class QueryMetrics {
+
+    private static final int MAX_TEMPLATES = 2048;
+    private static final String OTHER = "<other>";
+    private static final Pattern PLACEHOLDER_GROUP = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern REPEATED_GROUPS = Pattern.compile("\\(\\?\\)(?:\\s*,\\s*\\(\\?\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Map<String, String> TEMPLATES = new ConcurrentHashMap<>();
+    private static final Map<String, QueryStats> STATS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = false;
+    private static volatile long slowNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Sets whether operations are recorded. Defaults to {@code false}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param enabled {@code true} to record operations
+     */
+    public static void setEnabled(boolean enabled) {
+        QueryMetrics.enabled = enabled;
+    }
+
+    /**
+     * Returns whether operations are being recorded
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@code true} if operations are recorded
+     */
+    public static boolean isEnabled() {
+        return QueryMetrics.enabled;
+    }
+
+    /**
+     * Sets the latency above which operations are written to the slow query
+     * log, or 0 to disable the log. Defaults to 100 milliseconds
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param time The amount of time
+     * @param unit The {@link TimeUnit} of the {@code time} parameter
+     */
+    public static void setSlowThreshold(long time, TimeUnit unit) {
+        QueryMetrics.slowNanos = unit.toNanos(time);
+    }
+
+    /**
+     * Records a completed operation. Does nothing if recording is disabled
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param sql The SQL that was run
+     * @param nanos The time the operation took, in nanoseconds
+     * @param rows The number of rows updated, or -1 for operations which
+     *             do not report one, such as queries
+     * @param failed Whether the operation threw an exception
+     */
+    static void record(String sql, long nanos, int rows, boolean failed) {
+        if (!QueryMetrics.enabled || sql == null) {
+            return;
+        }
+        String template = QueryMetrics.template(sql);
+        QueryStats stats = QueryMetrics.STATS.get(template);
+        if (stats == null) {
+            if (QueryMetrics.STATS.size() >= QueryMetrics.MAX_TEMPLATES) {
+                template = QueryMetrics.OTHER;
+            }
+            stats = QueryMetrics.STATS.computeIfAbsent(template, QueryStats::new);
+        }
+        stats.record(nanos, rows, failed);
+        long slow = QueryMetrics.slowNanos;
+        if (slow > 0 && nanos >= slow) {
+            QueryMetrics.logSlow(template, nanos);
+        }
+    }
+
+    /**
+     * Converts raw SQL into its template, collapsing placeholder lists and
+     * whitespace. Results are cached for the first few thousand distinct
+     * statements
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param sql The raw SQL
+     * @return The SQL template
+     */
+    private static String template(String sql) {
+        String back = QueryMetrics.TEMPLATES.get(sql);
+        if (back == null) {
+            back = QueryMetrics.WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+            back = QueryMetrics.PLACEHOLDER_GROUP.matcher(back).replaceAll("(?)");
+            back = QueryMetrics.REPEATED_GROUPS.matcher(back).replaceAll("(?), ...");
+            if (QueryMetrics.TEMPLATES.size() < QueryMetrics.MAX_TEMPLATES * 4) {
+                QueryMetrics.TEMPLATES.put(sql, back);
+            }
+        }
+        return back;
+    }
+
+    /**
+     * Logs a slow operation along with the first caller outside of this
+     * package, and the plugin that caller belongs to
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param template The SQL template of the operation
+     * @param nanos The time the operation took, in nanoseconds
+     */
+    private static void logSlow(String template, long nanos) {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        String caller = "unknown";
+        String plugin = "unknown";
+        for (int i = 2; i < stack.length; i++) {
+            String cl = stack[i].getClassName();
+            if (cl.startsWith("com.codelanx.codelanxlib.data.") || cl.startsWith("java.")) {
+                continue;
+            }
+            caller = stack[i].toString();
+            try {
+                //offsets are relative to the caller of this method, which is stack[2]
+                JavaPlugin p = Reflections.getCallingPlugin(i - 2);
+                plugin = p == null ? plugin : p.getName();
+            } catch (RuntimeException ex) {
+                //Not called from a plugin class, such as from an executor thread
+            }
+            break;
+        }
+        CodelanxLib.get().getLogger().warning(String.format("Slow SQL (%.2fms) from %s at %s: %s",
+                nanos / 1000000D, plugin, caller, template));
+    }
+
+    /**
+     * Returns the recorded statistics of every SQL template
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A {@link List} of {@link QueryStats}, in no particular order
+     */
+    public static List<QueryStats> getStats() {
+        return new ArrayList<>(QueryMetrics.STATS.values());
+    }
+
+    /**
+     * Returns the statistics of the templates which have taken the most total
+     * time
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param limit The maximum number of templates to return
+     * @return A {@link List} of {@link QueryStats}, ordered by total time
+     */
+    public static List<QueryStats> getTop(int limit) {
+        return QueryMetrics.STATS.values().stream()
+                .sorted(Comparator.comparingLong((QueryStats s) -> s.getTotalTime(TimeUnit.NANOSECONDS)).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Formats a report of the templates which have taken the most total time,
+     * one line per template
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param limit The maximum number of templates to report
+     * @return The formatted report
+     */
+    public static String report(int limit) {
+        StringBuilder sb = new StringBuilder("SQL templates by total time:");
+        for (QueryStats s : QueryMetrics.getTop(limit)) {
+            long rows = s.getRowCount();
+            sb.append(String.format("%n  %,dx total=%,dms mean=%.2fms p99=%.2fms max=%.2fms rows=%s errors=%,d | %s",
+                    s.getCount(), s.getTotalTime(TimeUnit.MILLISECONDS),
+                    s.getMeanTime(TimeUnit.MICROSECONDS) / 1000D,
+                    s.getPercentile(99, TimeUnit.MICROSECONDS) / 1000D,
+                    s.getMaxTime(TimeUnit.MICROSECONDS) / 1000D,
+                    rows < 0 ? "-" : String.format("%,d", rows), s.getErrorCount(), s.getTemplate()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Discards all recorded statistics
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public static void reset() {
+        QueryMetrics.STATS.clear();
+        QueryMetrics.TEMPLATES.clear();
+    }
+
+    /**
+     * Latency and count statistics for a single SQL template. Latencies are
+     * kept in logarithmic buckets with four sub-buckets per power of two, so
+     * percentiles are accurate to within 25%
+     * 
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     */
+    public static final class QueryStats {
+
+        private static final int BUCKETS = 256;
+        private final String template;
+        private final AtomicLongArray buckets = new AtomicLongArray(QueryStats.BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile boolean counted = false;
+
+        private QueryStats(String template) {
+            this.template = template;
+        }
+
+        private void record(long nanos, int rows, boolean failed) {
+            this.buckets.incrementAndGet(QueryStats.bucket(nanos));
+            this.count.increment();
+            this.totalNanos.add(nanos);
+            if (rows >= 0) {
+                if (!this.counted) {
+                    this.counted = true;
+                }
+                this.rows.add(rows);
+            }
+            if (failed) {
+                this.errors.increment();
+            }
+            if (nanos > this.maxNanos.get()) {
+                this.maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        private static int bucket(long nanos) {
+            if (nanos < 4) {
+                return (int) Math.max(0, nanos);
+            }
+            int msb = 63 - Long.numberOfLeadingZeros(nanos);
+            return msb * 4 + (int) ((nanos >>> (msb - 2)) & 3);
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int msb = bucket / 4;
+            return ((4L + (bucket & 3) + 1) << (msb - 2)) - 1;
+        }
+
+        /**
+         * Returns the SQL template these statistics are for
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The SQL template
+         */
+        public String getTemplate() {
+            return this.template;
+        }
+
+        /**
+         * Returns the number of recorded operations
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The operation count
+         */
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        /**
+         * Returns the total number of rows updated by recorded operations.
+         * Queries and raw operations do not report a row count, so templates
+         * made up only of those return {@code -1}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The updated row count, or {@code -1} if none was reported
+         */
+        public long getRowCount() {
+            return this.counted ? this.rows.sum() : -1;
+        }
+
+        /**
+         * Returns the number of recorded operations which failed
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The error count
+         */
+        public long getErrorCount() {
+            return this.errors.sum();
+        }
+
+        /**
+         * Returns the total time spent in recorded operations
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param unit The {@link TimeUnit} to return the time in
+         * @return The total time
+         */
+        public long getTotalTime(TimeUnit unit) {
+            return unit.convert(this.totalNanos.sum(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the mean time of a recorded operation
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param unit The {@link TimeUnit} to return the time in
+         * @return The mean time
+         */
+        public long getMeanTime(TimeUnit unit) {
+            long c = this.count.sum();
+            return c == 0 ? 0 : unit.convert(this.totalNanos.sum() / c, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the longest time of a recorded operation
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param unit The {@link TimeUnit} to return the time in
+         * @return The maximum time
+         */
+        public long getMaxTime(TimeUnit unit) {
+            return unit.convert(this.maxNanos.get(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the time within which the passed percentage of recorded
+         * operations completed
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param percentile The percentile, between 0 and 100
+         * @param unit The {@link TimeUnit} to return the time in
+         * @return The upper bound of the percentile's bucket
+         */
+        public long getPercentile(double percentile, TimeUnit unit) {
+            long[] counts = new long[QueryStats.BUCKETS];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100D);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target && counts[i] > 0) {
+                    long bound = Math.min(QueryStats.upperBound(i), this.maxNanos.get());
+                    return unit.convert(bound, TimeUnit.NANOSECONDS);
+                }
+            }
+            return this.getMaxTime(unit);
+        }
+
+    }
+
+}
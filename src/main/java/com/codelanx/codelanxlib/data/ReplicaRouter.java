@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.logging.Debugger;
+import com.codelanx.codelanxlib.util.Databases;
+import com.codelanx.codelanxlib.util.Scheduler;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Routes read-only operations across a set of read replicas. Each replica is
+ * backed by its own {@link ConnectionPool}, which is opened by the first
+ * successful health check rather than upon being added, so an unreachable
+ * replica never delays startup.
+ * <br><br>
+ * A replica is first checked as soon as it is added, and health checks then
+ * run periodically on the
+ * {@link com.codelanx.codelanxlib.util.Scheduler Scheduler}, and callers only
+ * read the last known state of each replica. Borrowing from a replica waits
+ * no longer than {@link ReplicaRouter#BORROW_TIMEOUT_MS}, as a busy replica
+ * is better skipped for the primary than waited upon. A replica is taken out of
+ * rotation when its check fails, when it falls too far behind its primary, or
+ * when a connection cannot be borrowed from it, and is returned to rotation by
+ * the next passing check
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public final class ReplicaRouter implements AutoCloseable {
+
+    /** The longest time in milliseconds to wait on a replica's pool */
+    public static final long BORROW_TIMEOUT_MS = 250;
+
+    private final List<Replica> replicas = new CopyOnWriteArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Strategy strategy;
+    private final ConnectionPool.Settings settings;
+    private final int maxLagSeconds;
+    private final ScheduledFuture<?> checker;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new {@link ReplicaRouter} and starts its health checks
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param strategy The {@link Strategy} used to pick a replica
+     * @param settings The {@link ConnectionPool.Settings} for each replica
+     * @param checkIntervalSeconds The time between health checks in seconds
+     * @param maxLagSeconds The maximum replication lag before a replica is
+     *                      taken out of rotation, or 0 to ignore lag
+     */
+    public ReplicaRouter(Strategy strategy, ConnectionPool.Settings settings, long checkIntervalSeconds, int maxLagSeconds) {
+        Validate.notNull(strategy, "Strategy cannot be null");
+        Validate.notNull(settings, "Pool settings cannot be null");
+        Validate.isTrue(checkIntervalSeconds > 0, "Check interval must be greater than 0");
+        this.strategy = strategy;
+        this.settings = settings.copy().borrowTimeout(
+                Math.min(settings.getBorrowTimeoutMS(), ReplicaRouter.BORROW_TIMEOUT_MS), TimeUnit.MILLISECONDS);
+        this.maxLagSeconds = maxLagSeconds;
+        //Replicas are checked upon being added, so the first run waits
+        this.checker = Scheduler.runAsyncTaskRepeat(this::check, checkIntervalSeconds, checkIntervalSeconds);
+    }
+
+    /**
+     * Adds a replica and checks it upon a background thread. It enters
+     * rotation once it passes that check
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param url The JDBC url of the replica
+     * @param props The {@link Properties} to connect with (user, password, etc)
+     */
+    public void addReplica(String url, Properties props) {
+        Validate.notNull(url, "JDBC url cannot be null");
+        Replica r = new Replica(url, props);
+        this.replicas.add(r);
+        Scheduler.runAsyncTask(() -> this.check(r), 0);
+    }
+
+    /**
+     * Borrows a {@link Connection} from a healthy replica. The returned
+     * connection must be closed in order to return it to its pool. A replica
+     * whose pool is exhausted is skipped for this call only, while one which
+     * fails to connect is taken out of rotation until its next health check
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A replica {@link Connection}, or {@code null} if no replica is
+     *         currently healthy and available
+     */
+    public Connection borrow() {
+        List<Replica> skip = null;
+        for (int attempt = 0; attempt < this.replicas.size(); attempt++) {
+            Replica r = this.pick(skip);
+            if (r == null) {
+                return null;
+            }
+            try {
+                return r.pool.borrow();
+            } catch (SQLTransientConnectionException ex) {
+                //the pool is exhausted, which says nothing about its health
+                if (skip == null) {
+                    skip = new ArrayList<>(2);
+                }
+                skip.add(r);
+            } catch (SQLException ex) {
+                r.healthy = false;
+                Debugger.print("Removed replica %s from rotation: %s", r.url, Databases.simpleErrorOutput(ex));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks a healthy replica according to the {@link Strategy}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param skip Replicas not to pick, or {@code null} to consider all
+     * @return The chosen {@link Replica}, or {@code null} if none are healthy
+     */
+    private Replica pick(List<Replica> skip) {
+        Replica best = null;
+        int size = this.replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = this.next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Replica r = this.replicas.get((start + i) % size);
+            if (!r.healthy || (skip != null && skip.contains(r))) {
+                continue;
+            }
+            if (this.strategy == Strategy.ROUND_ROBIN) {
+                return r;
+            }
+            if (best == null || r.latencyNanos < best.latencyNanos) {
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs a health check upon every replica. This is called periodically,
+     * and should not need to be called directly
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public void check() {
+        if (this.closed) {
+            return;
+        }
+        this.replicas.forEach(this::check);
+    }
+
+    /**
+     * Checks a single replica, opening its pool if needed, and updates its
+     * health and latency
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param r The {@link Replica} to check
+     */
+    private void check(Replica r) {
+        synchronized (r) {
+            if (!this.closed) {
+                this.checkReplica(r);
+            }
+        }
+    }
+
+    private void checkReplica(Replica r) {
+        boolean was = r.healthy;
+        try {
+            if (r.pool == null) {
+                r.pool = new ConnectionPool(r.url, r.props, this.settings);
+            }
+            long start = System.nanoTime();
+            boolean ok;
+            try (Connection con = r.pool.borrow()) {
+                ok = con.isValid(5);
+                if (ok && this.maxLagSeconds > 0) {
+                    ok = this.checkLag(con);
+                }
+            }
+            long time = System.nanoTime() - start;
+            r.latencyNanos = r.latencyNanos == 0 ? time : (r.latencyNanos * 7 + time) / 8;
+            r.healthy = ok;
+        } catch (SQLException ex) {
+            r.healthy = false;
+        }
+        if (was != r.healthy) {
+            Debugger.print("Replica %s is now %s", r.url, r.healthy ? "healthy" : "unhealthy");
+        }
+    }
+
+    /**
+     * Checks the replication lag of a replica
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param con A {@link Connection} to the replica
+     * @return {@code false} if replication is stopped or lagging
+     * @throws SQLException If the replication status could not be read
+     */
+    private boolean checkLag(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery("SHOW SLAVE STATUS")) {
+            if (!rs.next()) {
+                //not replicating, so it cannot lag
+                return true;
+            }
+            long lag = rs.getLong("Seconds_Behind_Master");
+            return !rs.wasNull() && lag <= this.maxLagSeconds;
+        }
+    }
+
+    /**
+     * Returns the number of replicas, healthy or not
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of replicas
+     */
+    public int getReplicaCount() {
+        return this.replicas.size();
+    }
+
+    /**
+     * Returns the number of replicas currently in rotation
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of healthy replicas
+     */
+    public int getHealthyCount() {
+        return (int) this.replicas.stream().filter(r -> r.healthy).count();
+    }
+
+    /**
+     * Stops the health checks and closes the pool of every replica
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.checker.cancel(false);
+        this.replicas.forEach(r -> {
+            synchronized (r) {
+                r.healthy = false;
+                if (r.pool != null) {
+                    r.pool.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Strategies for picking a replica
+     * 
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     */
+    public static enum Strategy {
+
+        /** Cycles through the healthy replicas in turn */
+        ROUND_ROBIN,
+        /** Picks the healthy replica with the lowest health check latency */
+        LEAST_LATENCY,
+        ;
+
+    }
+
+    private static final class Replica {
+
+        private final String url;
+        private final Properties props;
+        private volatile ConnectionPool pool;
+        private volatile boolean healthy = false;
+        private volatile long latencyNanos = 0;
+
+        public Replica(String url, Properties props) {
+            this.url = url;
+            this.props = props;
+        }
+
+    }
+
+}
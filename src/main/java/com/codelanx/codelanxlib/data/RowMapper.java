@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts the current row of a {@link ResultSet} into an object. Mappers
+ * should only read the current row, and must not move the cursor
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ * 
+ * @param <T> The type of object each row is converted to
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Converts the current row of the passed {@link ResultSet}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param rs The {@link ResultSet}, positioned at the row to convert
+     * @return The converted row
+     * @throws SQLException If an {@link SQLException} is thrown in the lambda
+     *                      body
+     */
+    public T map(ResultSet rs) throws SQLException;
+
+    /**
+     * Returns an {@link SQLFunction} which maps every remaining row of a
+     * {@link ResultSet} using this mapper, for use with
+     * {@link SQLDataType#query(SQLFunction, String, Object...)}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return An {@link SQLFunction} collecting all rows into a {@link List}
+     */
+    default public SQLFunction<ResultSet, List<T>> all() {
+        return rs -> {
+            List<T> back = new ArrayList<>();
+            while (rs.next()) {
+                back.add(this.map(rs));
+            }
+            return back;
+        };
+    }
+
+    /**
+     * Returns an {@link SQLFunction} which maps the first row of a
+     * {@link ResultSet} using this mapper, or returns {@code null} if there
+     * are no rows
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return An {@link SQLFunction} mapping the first row
+     */
+    default public SQLFunction<ResultSet, T> first() {
+        return rs -> rs.next() ? this.map(rs) : null;
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.util.Databases;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A forward-only, read-only view over the rows of a query, converting each
+ * row through a {@link RowMapper} only as it is reached. Rows are never
+ * buffered beyond the driver's fetch size, which allows iterating tables far
+ * larger than the heap. The underlying connection remains leased from its
+ * {@link SQLDataType} until the cursor is closed, so cursors should always be
+ * used within a try-with-resources block:
+ * <br><br>{@code
+ * try (SQLCursor<String> names = db.cursor(rs -> rs.getString("name"), 500, "SELECT name FROM players")) {
+ *     names.forEachRemaining(out::println);
+ * }
+ * }
+ * <br><br>
+ * Any {@link SQLException} raised while advancing the cursor closes it, and is
+ * rethrown wrapped in an {@link IllegalStateException}
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ * 
+ * @param <T> The type each row is converted to
+ */
+public class SQLCursor<T> implements Iterator<T>, AutoCloseable {
+
+    private final SQLDataType source;
+    private final Connection con;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowMapper<? extends T> mapper;
+    private boolean ready = false;
+    private boolean done = false;
+
+    /**
+     * Executes the query for this cursor upon a leased connection
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param source The {@link SQLDataType} the connection was leased from
+     * @param con The leased {@link Connection}
+     * @param mapper The {@link RowMapper} to convert rows with
+     * @param fetchSize The fetch size hint given to the driver
+     * @param sql The SQL query to execute
+     * @param params Any {@link PreparedStatement} parameters
+     * @throws SQLException If the query fails to execute
+     */
+    SQLCursor(SQLDataType source, Connection con, RowMapper<? extends T> mapper, int fetchSize, String sql, Object... params) throws SQLException {
+        this.source = source;
+        this.con = con;
+        this.mapper = mapper;
+        PreparedStatement stmt = null;
+        try {
+            stmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+            this.rs = stmt.executeQuery();
+        } catch (SQLException ex) {
+            Databases.close(stmt);
+            source.release(con);
+            throw ex;
+        }
+        this.stmt = stmt;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     * @throws IllegalStateException If the next row could not be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (!this.ready && !this.done) {
+            try {
+                this.ready = this.rs.next();
+            } catch (SQLException ex) {
+                this.close();
+                throw new IllegalStateException("Error advancing cursor: " + Databases.simpleErrorOutput(ex), ex);
+            }
+            if (!this.ready) {
+                this.close();
+            }
+        }
+        return this.ready;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     * @throws IllegalStateException If the row could not be converted
+     */
+    @Override
+    public T next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.ready = false;
+        try {
+            return this.mapper.map(this.rs);
+        } catch (SQLException ex) {
+            this.close();
+            throw new IllegalStateException("Error mapping row: " + Databases.simpleErrorOutput(ex), ex);
+        }
+    }
+
+    /**
+     * Returns a sequential {@link Stream} over the remaining rows of this
+     * cursor. Closing the stream closes this cursor
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A lazily populated {@link Stream} of the remaining rows
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * Closes the underlying result set and statement, and releases the
+     * connection back to its {@link SQLDataType}. Safe to call multiple times
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    @Override
+    public void close() {
+        if (this.done) {
+            return;
+        }
+        this.done = true;
+        this.ready = false;
+        Databases.close(this.rs);
+        Databases.close(this.stmt);
+        this.source.release(this.con);
+    }
+
+}
@@ -27,7 +27,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Represents an object that connects to an SQL database and allows operations
@@ -35,7 +38,7 @@ import java.util.function.Function;
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public interface SQLDataType extends DataType, AutoCloseable {
 
@@ -68,7 +71,7 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * from the lambda body
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param <R> The return type from the lambda body
      * @param oper The operation to apply to the {@link ResultSet}
@@ -77,24 +80,46 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * @return The return value of the lambda
      */
     default public <R> SQLResponse<R> query(SQLFunction<? super ResultSet, R> oper, String sql, Object... params) {
+        return this.query(oper, sql, ParamBinder.of(params));
+    }
+
+    /**
+     * Executes a query, and applies the resulting {@link ResultSet} to the
+     * passed {@link SQLFunction}. This method will return anything returned
+     * from the lambda body
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param <R> The return type from the lambda body
+     * @param oper The operation to apply to the {@link ResultSet}
+     * @param sql The SQL statement to execute
+     * @param params The {@link ParamBinder} holding the parameters
+     * @return The return value of the lambda
+     */
+    default public <R> SQLResponse<R> query(SQLFunction<? super ResultSet, R> oper, String sql, ParamBinder params) {
+        SQLResponse<R> back = new SQLResponse<>();
+        Connection con = null;
         PreparedStatement stmt = null;
-        R back = null;
+        long start = System.nanoTime();
         try {
-            stmt = this.prepare(sql);
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
-            }
+            con = this.leaseRead();
+            stmt = con.prepareStatement(sql);
+            params.apply(stmt);
             ResultSet rs = stmt.executeQuery();
-            back = oper.apply(rs);
+            back.setResponse(oper.apply(rs));
             Databases.close(rs);
         } catch (SQLException ex) {
+            back.setException(ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
         } finally {
             Databases.close(stmt);
+            this.release(con);
+            QueryMetrics.record(sql, System.nanoTime() - start, -1, back.getException() != null);
         }
-        return new SQLResponse<>(back);
+        return back;
     }
 
     /**
@@ -102,7 +127,7 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * passed {@link SQLConsumer}
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param oper The operation to apply to the {@link ResultSet}
      * @param sql The SQL statement to execute
@@ -111,31 +136,109 @@ public interface SQLDataType extends DataType, AutoCloseable {
      */
     @SuppressWarnings("rawtypes")
     default public SQLResponse query(SQLConsumer<? super ResultSet> oper, String sql, Object... params) {
+        return this.query(oper, sql, ParamBinder.of(params));
+    }
+
+    /**
+     * Executes a query, and applies the resulting {@link ResultSet} to the
+     * passed {@link SQLConsumer}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param oper The operation to apply to the {@link ResultSet}
+     * @param sql The SQL statement to execute
+     * @param params The {@link ParamBinder} holding the parameters
+     * @return An {@link SQLResponse} containing any required information
+     */
+    @SuppressWarnings("rawtypes")
+    default public SQLResponse query(SQLConsumer<? super ResultSet> oper, String sql, ParamBinder params) {
         SQLResponse resp = new SQLResponse();
+        Connection con = null;
         PreparedStatement stmt = null;
+        long start = System.nanoTime();
         try {
-            stmt = this.prepare(sql);
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
-            }
+            con = this.leaseRead();
+            stmt = con.prepareStatement(sql);
+            params.apply(stmt);
             ResultSet rs = stmt.executeQuery();
             oper.accept(rs);
             Databases.close(rs);
         } catch (SQLException ex) {
+            resp.setException(ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
         } finally {
             Databases.close(stmt);
+            this.release(con);
+            QueryMetrics.record(sql, System.nanoTime() - start, -1, resp.getException() != null);
         }
         return resp;
     }
 
+    /**
+     * Executes a query and returns an {@link SQLCursor} which converts each
+     * row through the passed {@link RowMapper} as it is iterated, rather than
+     * materializing the whole {@link ResultSet}. The cursor holds a leased
+     * connection until it is closed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <T> The type each row is converted to
+     * @param mapper The {@link RowMapper} for converting rows
+     * @param fetchSize The number of rows the driver should fetch at a time
+     * @param sql The SQL query to execute
+     * @param params Any {@link PreparedStatement} parameters
+     * @return An open {@link SQLCursor} over the query results
+     * @throws SQLException If the query fails to execute
+     */
+    default public <T> SQLCursor<T> cursor(RowMapper<? extends T> mapper, int fetchSize, String sql, Object... params) throws SQLException {
+        return new SQLCursor<>(this, this.leaseRead(), mapper, fetchSize, sql, params);
+    }
+
+    /**
+     * Executes a query and returns a lazily populated {@link Stream} of its
+     * rows, using the fetch size from
+     * {@link SQLDataType#getStreamingFetchSize()}. The stream holds a leased
+     * connection until it is closed or fully consumed, and so should be used
+     * within a try-with-resources block
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see SQLDataType#cursor(RowMapper, int, String, Object...)
+     * @param <T> The type each row is converted to
+     * @param mapper The {@link RowMapper} for converting rows
+     * @param sql The SQL query to execute
+     * @param params Any {@link PreparedStatement} parameters
+     * @return A {@link Stream} of the converted rows
+     * @throws SQLException If the query fails to execute
+     */
+    default public <T> Stream<T> stream(RowMapper<? extends T> mapper, String sql, Object... params) throws SQLException {
+        return this.<T>cursor(mapper, this.getStreamingFetchSize(), sql, params).stream();
+    }
+
+    /**
+     * Returns the fetch size used by
+     * {@link SQLDataType#stream(RowMapper, String, Object...)}. Drivers which
+     * have a special value for streaming results row by row should return it
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The fetch size hint for streamed queries
+     */
+    default public int getStreamingFetchSize() {
+        return 1000;
+    }
+
     /**
      * Executes a query that can change values
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param query The string query to execute
      * @param params Any {@link PreparedStatement} parameters
@@ -143,22 +246,47 @@ public interface SQLDataType extends DataType, AutoCloseable {
      */
     @SuppressWarnings("rawtypes")
     default public SQLResponse update(String query, Object... params) {
+        return this.update(query, ParamBinder.of(params));
+    }
+
+    /**
+     * Executes a query that can change values. Statements which change the
+     * schema, such as {@code CREATE} or {@code ALTER}, invalidate the
+     * {@link SchemaCache} of this instance
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param query The string query to execute
+     * @param params The {@link ParamBinder} holding the parameters
+     * @return 0 for no returned results, or the number of returned rows
+     */
+    @SuppressWarnings("rawtypes")
+    default public SQLResponse update(String query, ParamBinder params) {
         SQLResponse resp = new SQLResponse();
+        Connection con = null;
         PreparedStatement stmt = null;
         int back = 0;
+        long start = System.nanoTime();
         try {
-            stmt = this.prepare(query);
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
-            }
+            con = this.lease();
+            stmt = con.prepareStatement(query);
+            params.apply(stmt);
             back = stmt.executeUpdate();
         } catch (SQLException ex) {
+            resp.setException(ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
         } finally {
-            if (stmt != null) {
-                Databases.close(stmt);
+            Databases.close(stmt);
+            this.release(con);
+            QueryMetrics.record(query, System.nanoTime() - start, back, resp.getException() != null);
+            if (Databases.isSchemaChange(query)) {
+                SchemaCache schema = this.getSchema();
+                if (schema != null) {
+                    schema.invalidate();
+                }
             }
         }
         resp.setUpdatedRows(back);
@@ -183,21 +311,39 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * map each object so that "Parameter 1" would be the result of
      * {@code SomeObject#getName}, and parameter 2 would be the result of
      * {@code SomeObject#getID}, and so on
+     * <br><br>
+     * Each batch is committed as it completes. Should a batch fail, it is
+     * rolled back, and the connection's auto-commit state is restored. If
+     * auto-commit is already disabled upon the connection, such as within
+     * {@link SQLDataType#transaction(SQLFunction)}, committing and rolling
+     * back are left to the owner of the connection
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @param <T> The type of the objects being batch committed
      * @param query The SQL query to execute
      * @param batchSize The size of each batch
      * @param params The objects to use in each batch
      * @param paramMappers A series of functions for mapping objects to params
+     * @return An {@link SQLResponse} containing the total number of updated
+     *         rows, and any exception that occurred
      */
-    default public <T> void batchUpdate(String query, int batchSize, Collection<T> params, Function<T, ?>... paramMappers) {
+    @SuppressWarnings("rawtypes")
+    default public <T> SQLResponse batchUpdate(String query, int batchSize, Collection<T> params, Function<T, ?>... paramMappers) {
+        SQLResponse resp = new SQLResponse();
+        int updated = 0;
+        Connection con = null;
         PreparedStatement stmt = null;
+        boolean auto = false;
+        long start = System.nanoTime();
         try {
-            stmt = this.prepare(query);
-            this.setAutoCommit(false);
+            con = this.lease();
+            stmt = con.prepareStatement(query);
+            auto = con.getAutoCommit();
+            if (auto) {
+                con.setAutoCommit(false);
+            }
             Iterator<T> itr = params.iterator();
             for (int i = 1; itr.hasNext(); i++) {
                 T val = itr.next();
@@ -206,23 +352,125 @@ public interface SQLDataType extends DataType, AutoCloseable {
                 }
                 stmt.addBatch();
                 if (i >= batchSize) {
-                    stmt.executeBatch();
-                    this.commit();
+                    updated += Databases.sumUpdates(stmt.executeBatch());
+                    if (auto) {
+                        con.commit();
+                    }
                     i = 1;
                 }
             }
-            stmt.executeBatch();
-            this.commit();
-            this.setAutoCommit(true);
+            updated += Databases.sumUpdates(stmt.executeBatch());
+            if (auto) {
+                con.commit();
+            }
         } catch (SQLException ex) {
+            if (auto) {
+                Databases.rollback(con, ex);
+            }
+            resp.setException(ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
         } finally {
-            if (stmt != null) {
-                Databases.close(stmt);
+            Databases.close(stmt);
+            if (auto) {
+                Databases.restoreAutoCommit(con);
             }
+            this.release(con);
+            QueryMetrics.record(query, System.nanoTime() - start, updated, resp.getException() != null);
         }
+        resp.setUpdatedRows(updated);
+        return resp;
+    }
+
+    /**
+     * Asynchronously executes a query on the {@link SQLExecutor}, and applies
+     * the resulting {@link ResultSet} to the passed {@link SQLFunction}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see SQLDataType#query(SQLFunction, String, Object...)
+     * @param <R> The return type from the lambda body
+     * @param oper The operation to apply to the {@link ResultSet}
+     * @param sql The SQL statement to execute
+     * @param params Any {@link PreparedStatement} parameters
+     * @return A {@link CompletableFuture} of the {@link SQLResponse}
+     */
+    default public <R> CompletableFuture<SQLResponse<R>> queryAsync(SQLFunction<? super ResultSet, R> oper, String sql, Object... params) {
+        return SQLExecutor.supply(() -> this.query(oper, sql, params));
+    }
+
+    /**
+     * Asynchronously executes a query on the {@link SQLExecutor}, and applies
+     * the resulting {@link ResultSet} to the passed {@link SQLConsumer}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see SQLDataType#query(SQLConsumer, String, Object...)
+     * @param oper The operation to apply to the {@link ResultSet}
+     * @param sql The SQL statement to execute
+     * @param params Any {@link PreparedStatement} parameters
+     * @return A {@link CompletableFuture} of the {@link SQLResponse}
+     */
+    @SuppressWarnings("rawtypes")
+    default public CompletableFuture<SQLResponse> queryAsync(SQLConsumer<? super ResultSet> oper, String sql, Object... params) {
+        return SQLExecutor.supply(() -> this.query(oper, sql, params));
+    }
+
+    /**
+     * Asynchronously executes a query that can change values on the
+     * {@link SQLExecutor}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see SQLDataType#update(String, Object...)
+     * @param query The string query to execute
+     * @param params Any {@link PreparedStatement} parameters
+     * @return A {@link CompletableFuture} of the {@link SQLResponse}
+     */
+    @SuppressWarnings("rawtypes")
+    default public CompletableFuture<SQLResponse> updateAsync(String query, Object... params) {
+        return SQLExecutor.supply(() -> this.update(query, params));
+    }
+
+    /**
+     * Asynchronously executes a batch update on the {@link SQLExecutor}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see SQLDataType#batchUpdate(String, int, Collection, Function...)
+     * @param <T> The type of the objects being batch committed
+     * @param query The SQL query to execute
+     * @param batchSize The size of each batch
+     * @param params The objects to use in each batch
+     * @param paramMappers A series of functions for mapping objects to params
+     * @return A {@link CompletableFuture} of the {@link SQLResponse}
+     */
+    @SuppressWarnings("rawtypes")
+    default public <T> CompletableFuture<SQLResponse> batchUpdateAsync(String query, int batchSize, Collection<T> params, Function<T, ?>... paramMappers) {
+        return SQLExecutor.supply(() -> this.batchUpdate(query, batchSize, params, paramMappers));
+    }
+
+    /**
+     * Asynchronously runs a {@link PreparedStatement} using the provided
+     * {@code sql} parameter on the {@link SQLExecutor}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see SQLDataType#operate(SQLFunction, String, Object...)
+     * @param <R> The type of the return value
+     * @param oper The {@link SQLFunction} operation to use
+     * @param sql The SQL statement to execute
+     * @param params Parameters to pass to the {@link PreparedStatement}
+     * @return A {@link CompletableFuture} of the {@link SQLResponse}
+     */
+    default public <R> CompletableFuture<SQLResponse<R>> operateAsync(SQLFunction<? super PreparedStatement, R> oper, String sql, Object... params) {
+        return SQLExecutor.supply(() -> this.operate(oper, sql, params));
     }
 
     /**
@@ -312,7 +560,7 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * statements
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @param <R> The type of the return value
      * @param oper The {@link SQLFunction} operation to use
@@ -321,26 +569,161 @@ public interface SQLDataType extends DataType, AutoCloseable {
      * @return The returned result of the {@link SQLFunction}
      */
     default public <R> SQLResponse<R> operate(SQLFunction<? super PreparedStatement, R> oper, String sql, Object... params) {
+        return this.operate(oper, sql, ParamBinder.of(params));
+    }
+
+    /**
+     * Runs a {@link PreparedStatement} using the provided {@code sql} parameter.
+     * The following {@link SQLFunction} will then be run using this constructed
+     * statement. This is typically more-so for use in one-time executed
+     * statements
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <R> The type of the return value
+     * @param oper The {@link SQLFunction} operation to use
+     * @param sql The SQL statement to execute
+     * @param params The {@link ParamBinder} holding the parameters
+     * @return The returned result of the {@link SQLFunction}
+     */
+    default public <R> SQLResponse<R> operate(SQLFunction<? super PreparedStatement, R> oper, String sql, ParamBinder params) {
         SQLResponse<R> back = new SQLResponse<>();
+        Connection con = null;
         PreparedStatement stmt = null;
+        long start = System.nanoTime();
         try {
-            stmt = this.prepare(sql);
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
-            }
+            con = this.lease();
+            stmt = con.prepareStatement(sql);
+            params.apply(stmt);
             back.setResponse(oper.apply(stmt));
         } catch (SQLException ex) {
+            back.setException(ex);
             if (this.isSendingErrorOutput()) {
                 Debugger.error(ex, "Error in SQL operation: %s", Databases.simpleErrorOutput(ex));
             }
         } finally {
-            if (stmt != null) {
-                Databases.close(stmt);
+            Databases.close(stmt);
+            this.release(con);
+            QueryMetrics.record(sql, System.nanoTime() - start, -1, back.getException() != null);
+            if (Databases.isSchemaChange(sql)) {
+                SchemaCache schema = this.getSchema();
+                if (schema != null) {
+                    schema.invalidate();
+                }
             }
         }
         return back;
     }
 
+    /**
+     * Runs the passed {@link SQLFunction} as a single transaction, retrying
+     * up to 3 times on deadlocks and lock timeouts
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see SQLDataType#transaction(int, SQLFunction)
+     * @param <R> The type of the return value
+     * @param oper The {@link SQLFunction} operation to run
+     * @return The returned result of the {@link SQLFunction}
+     */
+    default public <R> SQLResponse<R> transaction(SQLFunction<? super SQLDataType, R> oper) {
+        return this.transaction(3, oper);
+    }
+
+    /**
+     * Runs the passed {@link SQLFunction} as a single transaction. The
+     * function is given an {@link SQLDataType} whose operations all run upon
+     * one connection from {@link SQLDataType#leaseExclusive()} with
+     * auto-commit disabled, and the transaction is
+     * committed once the function returns:
+     * <br><br>{@code
+     * db.transaction(tx -> {
+     *     tx.update("UPDATE balances SET amount = amount - ? WHERE id = ?", amount, from);
+     *     tx.update("UPDATE balances SET amount = amount + ? WHERE id = ?", amount, to);
+     *     return null;
+     * });
+     * }
+     * <br><br>
+     * Should the function throw an {@link SQLException}, or any operation
+     * within it fail, the transaction is rolled back. Failures caused by a
+     * deadlock, lock wait timeout or busy database are retried with an
+     * exponential backoff, so the function may be run more than once and
+     * should not have side effects outside of the database. Auto-commit is
+     * always restored afterwards. Nested calls join the outer transaction
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <R> The type of the return value
+     * @param maxAttempts The maximum number of times to run the function
+     * @param oper The {@link SQLFunction} operation to run
+     * @return The returned result of the {@link SQLFunction}
+     */
+    default public <R> SQLResponse<R> transaction(int maxAttempts, SQLFunction<? super SQLDataType, R> oper) {
+        SQLResponse<R> resp = new SQLResponse<>();
+        for (int attempt = 1; ; attempt++) {
+            Connection con = null;
+            boolean auto = false;
+            SQLException failure;
+            try {
+                con = this.leaseExclusive();
+                auto = con.getAutoCommit();
+                con.setAutoCommit(false);
+                TransactionScope scope = new TransactionScope(this, con);
+                R back = oper.apply(scope);
+                if (scope.getFailure() != null) {
+                    throw scope.getFailure();
+                }
+                con.commit();
+                resp.setResponse(back);
+                return resp;
+            } catch (SQLException ex) {
+                Databases.rollback(con, ex);
+                failure = ex;
+            } catch (RuntimeException ex) {
+                Databases.rollback(con, null);
+                throw ex;
+            } finally {
+                if (auto) {
+                    Databases.restoreAutoCommit(con);
+                }
+                this.release(con);
+            }
+            if (attempt < maxAttempts && Databases.isRetryable(failure)) {
+                try {
+                    long backoff = Math.min(1000, 25L << attempt);
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+                    continue;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            resp.setException(failure);
+            if (this.isSendingErrorOutput()) {
+                Debugger.error(failure, "Error in SQL transaction: %s", Databases.simpleErrorOutput(failure));
+            }
+            return resp;
+        }
+    }
+
+    /**
+     * Asynchronously runs the passed {@link SQLFunction} as a single
+     * transaction upon the {@link SQLExecutor}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see SQLDataType#transaction(SQLFunction)
+     * @param <R> The type of the return value
+     * @param oper The {@link SQLFunction} operation to run
+     * @return A {@link CompletableFuture} of the resulting {@link SQLResponse}
+     */
+    default public <R> CompletableFuture<SQLResponse<R>> transactionAsync(SQLFunction<? super SQLDataType, R> oper) {
+        return SQLExecutor.supply(() -> this.transaction(oper));
+    }
+
     /**
      * Returns the {@link Connection} object for ease of use in exposing more
      * internal API
@@ -352,6 +735,73 @@ public interface SQLDataType extends DataType, AutoCloseable {
      */
     public Connection getConnection();
 
+    /**
+     * Obtains a {@link Connection} for the duration of a single operation.
+     * Every connection returned from this method must be handed back through
+     * {@link SQLDataType#release(Connection)} once the operation completes.
+     * By default this simply returns {@link SQLDataType#getConnection()}, but
+     * pooled implementations will lease a connection from their pool
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A {@link Connection} to run an operation upon
+     * @throws SQLException If a connection could not be obtained
+     */
+    default public Connection lease() throws SQLException {
+        return this.getConnection();
+    }
+
+    /**
+     * Obtains a {@link Connection} which no other thread will use until it is
+     * handed back through {@link SQLDataType#release(Connection)}, as needed
+     * by {@link SQLDataType#transaction(int, SQLFunction)} so that statements
+     * from other threads do not join the transaction. By default this is the
+     * same as {@link SQLDataType#lease()}, which suffices for pooled
+     * implementations. Implementations which share a single connection
+     * between threads must override this
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A {@link Connection} exclusive to the calling thread
+     * @throws SQLException If a connection could not be obtained
+     */
+    default public Connection leaseExclusive() throws SQLException {
+        return this.lease();
+    }
+
+    /**
+     * Obtains a {@link Connection} for the duration of a single read-only
+     * operation, such as {@link SQLDataType#query(SQLFunction, String, Object...)}.
+     * As with {@link SQLDataType#lease()}, the connection must be handed back
+     * through {@link SQLDataType#release(Connection)}. By default this is the
+     * same as {@link SQLDataType#lease()}, but implementations may route reads
+     * to dedicated connections
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A {@link Connection} to run a read operation upon
+     * @throws SQLException If a connection could not be obtained
+     */
+    default public Connection leaseRead() throws SQLException {
+        return this.lease();
+    }
+
+    /**
+     * Hands back a {@link Connection} obtained from
+     * {@link SQLDataType#lease()}. By default this does nothing, as the
+     * connection is shared. Can handle null parameters
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param con The {@link Connection} to release
+     */
+    default public void release(Connection con) {
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -367,6 +817,24 @@ public interface SQLDataType extends DataType, AutoCloseable {
         }
     }
 
+    /**
+     * Returns the {@link SchemaCache} used to answer
+     * {@link SQLDataType#checkTable(String)} and
+     * {@link SQLDataType#checkColumn(String, String)}, if this implementation
+     * caches its schema. Schema changes made through
+     * {@link SQLDataType#update(String, ParamBinder)} or
+     * {@link SQLDataType#operate(SQLFunction, String, ParamBinder)} invalidate
+     * the cache automatically; any made otherwise should invalidate it
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The {@link SchemaCache}, or {@code null} if not cached
+     */
+    default public SchemaCache getSchema() {
+        return null;
+    }
+
     /**
      * Sets whether or not to print errors to the console automatically. This
      * is defaulted to {@code true}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.CodelanxLib;
+import com.codelanx.codelanxlib.logging.Debugger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.apache.commons.lang.Validate;
+import org.bukkit.Bukkit;
+
+/**
+ * Façade for the executor which runs asynchronous {@link SQLDataType}
+ * operations. Database work is kept on its own bounded set of threads, so that
+ * slow queries do not starve the general purpose
+ * {@link com.codelanx.codelanxlib.util.Scheduler Scheduler} pool. Should the
+ * queue of pending operations fill, further operations are rejected rather
+ * than run upon the submitting thread, which is usually the server thread.
+ * Operations submitted through {@link SQLExecutor#supply(Supplier)} then
+ * return a future failed with a {@link RejectedExecutionException}
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public final class SQLExecutor {
+
+    private static final int QUEUE_SIZE = 10000;
+    private static final Executor MAIN_THREAD = r -> {
+        if (Bukkit.isPrimaryThread()) {
+            r.run();
+        } else {
+            Bukkit.getScheduler().runTask(CodelanxLib.get(), r);
+        }
+    };
+    private static int threads = 4;
+    private static ThreadPoolExecutor es;
+
+    private SQLExecutor() {
+    }
+
+    /**
+     * Returns the {@link Executor} used for asynchronous database operations,
+     * creating it if needed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The database {@link Executor}
+     */
+    public static synchronized Executor get() {
+        if (SQLExecutor.es == null || SQLExecutor.es.isShutdown()) {
+            SQLExecutor.es = new ThreadPoolExecutor(SQLExecutor.threads, SQLExecutor.threads,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(SQLExecutor.QUEUE_SIZE),
+                    new NamedThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+            SQLExecutor.es.allowCoreThreadTimeOut(true);
+        }
+        return SQLExecutor.es;
+    }
+
+    /**
+     * Runs the passed {@link Supplier} upon the database {@link Executor}.
+     * Unlike {@link CompletableFuture#supplyAsync(Supplier, Executor)}, a
+     * full queue does not throw, but returns a future which has failed with
+     * a {@link RejectedExecutionException}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <T> The type of the result
+     * @param task The operation to run
+     * @return A {@link CompletableFuture} of the operation's result
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, SQLExecutor.get());
+        } catch (RejectedExecutionException ex) {
+            CompletableFuture<T> back = new CompletableFuture<>();
+            back.completeExceptionally(ex);
+            return back;
+        }
+    }
+
+    /**
+     * Sets the number of threads used for database operations. This should
+     * generally match the size of any {@link ConnectionPool} in use
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param amount The number of database threads
+     */
+    public static synchronized void setThreads(int amount) {
+        Validate.isTrue(amount > 0, "Thread count must be greater than 0");
+        SQLExecutor.threads = amount;
+        if (SQLExecutor.es != null && !SQLExecutor.es.isShutdown()) {
+            if (amount > SQLExecutor.es.getMaximumPoolSize()) {
+                SQLExecutor.es.setMaximumPoolSize(amount);
+                SQLExecutor.es.setCorePoolSize(amount);
+            } else {
+                SQLExecutor.es.setCorePoolSize(amount);
+                SQLExecutor.es.setMaximumPoolSize(amount);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of operations waiting for a database thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of queued operations
+     */
+    public static synchronized int getQueuedCount() {
+        return SQLExecutor.es == null ? 0 : SQLExecutor.es.getQueue().size();
+    }
+
+    /**
+     * Returns an {@link Executor} which runs tasks on Bukkit's main thread.
+     * Tasks submitted from the main thread itself are run immediately
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return A main thread {@link Executor}
+     */
+    public static Executor mainThread() {
+        return SQLExecutor.MAIN_THREAD;
+    }
+
+    /**
+     * Applies the passed {@link Consumer} to the result of a future upon
+     * Bukkit's main thread, once the future completes. An example usage
+     * would be:
+     * <br><br>{@code
+     * SQLExecutor.onMainThread(db.queryAsync(rs -> rs.next() ? rs.getInt(1) : 0, "SELECT ..."),
+     *     resp -> player.sendMessage("Score: " + resp.getResponse()));
+     * }
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <T> The type of the future's result
+     * @param future The {@link CompletableFuture} to wait upon
+     * @param action The operation to run on the main thread
+     * @return A {@link CompletableFuture} which completes after the action
+     */
+    public static <T> CompletableFuture<Void> onMainThread(CompletableFuture<T> future, Consumer<? super T> action) {
+        return future.thenAcceptAsync(action, SQLExecutor.MAIN_THREAD);
+    }
+
+    /**
+     * Stops accepting new operations and waits for queued operations to
+     * finish
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public static synchronized void shutdown() {
+        if (SQLExecutor.es == null) {
+            return;
+        }
+        SQLExecutor.es.shutdown();
+        try {
+            if (!SQLExecutor.es.awaitTermination(10, TimeUnit.SECONDS)) {
+                Debugger.print("Database executor did not finish %d queued operations", SQLExecutor.es.getQueue().size());
+            }
+        } catch (InterruptedException ex) {
+            Debugger.error(ex, "Error halting database executor");
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "CodelanxLib-SQL-" + this.threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.apache.commons.lang.Validate;
+
+/**
+ * An in-memory snapshot of the tables and columns of a database, used to
+ * answer {@link SQLDataType#checkTable(String)} and
+ * {@link SQLDataType#checkColumn(String, String)} without querying the
+ * database each time. The snapshot is loaded in full upon first use, and must
+ * be invalidated through {@link SchemaCache#invalidate()} after any statement
+ * which changes the schema. Table and column names are compared ignoring case
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public final class SchemaCache {
+
+    private final Supplier<SQLResponse<Map<String, Set<String>>>> loader;
+    private volatile Map<String, Set<String>> tables;
+
+    /**
+     * Creates a new {@link SchemaCache} which loads its snapshot from the
+     * passed loader. The loader returns a map of every table name to the
+     * names of its columns
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param loader The function loading the table and column names
+     */
+    public SchemaCache(Supplier<SQLResponse<Map<String, Set<String>>>> loader) {
+        Validate.notNull(loader, "Loader cannot be null");
+        this.loader = loader;
+    }
+
+    /**
+     * Returns whether the passed table exists
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param table The name of the table
+     * @return {@code true} if the table exists, or {@code false} if it does
+     *         not or the schema could not be loaded
+     */
+    public boolean hasTable(String table) {
+        return this.snapshot().containsKey(SchemaCache.normalize(table));
+    }
+
+    /**
+     * Returns whether the passed table has the passed column
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param table The name of the table
+     * @param column The name of the column
+     * @return {@code true} if the column exists, or {@code false} if it does
+     *         not or the schema could not be loaded
+     */
+    public boolean hasColumn(String table, String column) {
+        return this.getColumns(table).contains(SchemaCache.normalize(column));
+    }
+
+    /**
+     * Returns the lower-cased names of every table in the database
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return An unmodifiable {@link Set} of table names
+     */
+    public Set<String> getTables() {
+        return Collections.unmodifiableSet(this.snapshot().keySet());
+    }
+
+    /**
+     * Returns the lower-cased names of every column in the passed table
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param table The name of the table
+     * @return An unmodifiable {@link Set} of column names, empty if the table
+     *         does not exist
+     */
+    public Set<String> getColumns(String table) {
+        return this.snapshot().getOrDefault(SchemaCache.normalize(table), Collections.emptySet());
+    }
+
+    /**
+     * Discards the current snapshot, so that the next lookup reloads it from
+     * the database. This must be called after creating, altering or dropping
+     * tables
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public void invalidate() {
+        this.tables = null;
+    }
+
+    /**
+     * Returns whether a snapshot is currently loaded
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@code true} if the snapshot is loaded
+     */
+    public boolean isLoaded() {
+        return this.tables != null;
+    }
+
+    /**
+     * Returns the current snapshot, loading it if needed. A snapshot which
+     * fails to load is not cached
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The map of tables to their columns
+     */
+    private Map<String, Set<String>> snapshot() {
+        Map<String, Set<String>> back = this.tables;
+        if (back == null) {
+            synchronized (this) {
+                back = this.tables;
+                if (back == null) {
+                    SQLResponse<Map<String, Set<String>>> resp = this.loader.get();
+                    if (resp.getException() != null || resp.getResponse() == null) {
+                        return Collections.emptyMap();
+                    }
+                    back = new HashMap<>();
+                    for (Map.Entry<String, Set<String>> ent : resp.getResponse().entrySet()) {
+                        Set<String> columns = new HashSet<>();
+                        ent.getValue().forEach(c -> columns.add(SchemaCache.normalize(c)));
+                        back.put(SchemaCache.normalize(ent.getKey()), Collections.unmodifiableSet(columns));
+                    }
+                    this.tables = back;
+                }
+            }
+        }
+        return back;
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.util.Databases;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Caches {@link PreparedStatement PreparedStatements} by their SQL text on a
+ * per-connection basis. Connections passed through
+ * {@link StatementCache#wrap(Connection)} serve repeated calls to
+ * {@link Connection#prepareStatement(String)} from a bounded LRU cache, and
+ * the statements they hand out are returned to that cache upon
+ * {@link PreparedStatement#close()}. Closing the wrapped connection closes
+ * every statement cached for it. A single {@link StatementCache} may wrap any
+ * number of connections, and records hit and miss counts across all of them
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public class StatementCache {
+
+    private final int maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new {@link StatementCache}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param maxSize The maximum number of statements to cache per connection
+     */
+    public StatementCache(int maxSize) {
+        Validate.isTrue(maxSize > 0, "maxSize must be greater than 0");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Wraps a {@link Connection} so that its prepared statements are cached
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param con The {@link Connection} to wrap
+     * @return A caching view of the passed {@link Connection}
+     */
+    public Connection wrap(Connection con) {
+        Validate.notNull(con, "Connection cannot be null");
+        return (Connection) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new CachingConnection(con));
+    }
+
+    /**
+     * Returns the maximum number of statements cached per connection
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The per-connection cache size
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the number of statements served from the cache
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of statements which had to be freshly prepared
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of cache misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Returns the number of statements evicted to make room in the cache
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of evictions
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Returns the ratio of cache hits to total lookups, between 0 and 1
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The cache hit ratio
+     */
+    public double getHitRatio() {
+        long h = this.hits.get();
+        long total = h + this.misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Invokes a method upon a delegate, unwrapping any exception thrown
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param target The object to invoke upon
+     * @param method The {@link Method} to invoke
+     * @param args The method arguments
+     * @return The result of the invocation
+     * @throws Throwable The exception thrown by the method itself
+     */
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Handler for a {@link Connection} with its own LRU statement cache
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    private final class CachingConnection implements InvocationHandler {
+
+        private final Connection physical;
+        private final Map<String, CachedStatement> statements;
+        private boolean closed = false;
+
+        public CachingConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75F, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (this.size() > StatementCache.this.maxSize) {
+                        StatementCache.this.evictions.incrementAndGet();
+                        eldest.getValue().evict();
+                        return true;
+                    }
+                    return false;
+                }
+
+            };
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        return this.prepare((String) args[0]);
+                    }
+                    break;
+                case "close":
+                    this.invalidate();
+                    this.physical.close();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+            }
+            return StatementCache.delegate(this.physical, method, args);
+        }
+
+        /**
+         * Returns a cached statement for the passed SQL, preparing one if it
+         * is not cached or the cached statement is already in use
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param sql The SQL to prepare
+         * @return A {@link PreparedStatement} for the SQL
+         * @throws SQLException If the statement fails to prepare
+         */
+        private PreparedStatement prepare(String sql) throws SQLException {
+            synchronized (this) {
+                if (this.closed) {
+                    throw new SQLException("Connection is closed");
+                }
+                CachedStatement stmt = this.statements.get(sql);
+                if (stmt != null && !stmt.inUse) {
+                    StatementCache.this.hits.incrementAndGet();
+                    stmt.inUse = true;
+                    return stmt.proxy;
+                }
+            }
+            StatementCache.this.misses.incrementAndGet();
+            CachedStatement stmt = new CachedStatement(this, this.physical.prepareStatement(sql));
+            synchronized (this) {
+                if (this.closed) {
+                    stmt.evicted = true;
+                } else if (!this.statements.containsKey(sql)) {
+                    this.statements.put(sql, stmt);
+                } else {
+                    //the cached statement is in use, leave this one uncached
+                    stmt.evicted = true;
+                }
+            }
+            return stmt.proxy;
+        }
+
+        /**
+         * Closes all cached statements for this connection
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         */
+        private void invalidate() {
+            List<CachedStatement> old;
+            synchronized (this) {
+                this.closed = true;
+                old = new ArrayList<>(this.statements.values());
+                this.statements.clear();
+            }
+            old.forEach(CachedStatement::evict);
+        }
+
+    }
+
+    /**
+     * Handler for a single cached {@link PreparedStatement}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    private static final class CachedStatement implements InvocationHandler {
+
+        private final CachingConnection owner;
+        private final PreparedStatement physical;
+        private final PreparedStatement proxy;
+        private volatile boolean inUse = true;
+        private volatile boolean evicted = false;
+
+        public CachedStatement(CachingConnection owner, PreparedStatement physical) {
+            this.owner = owner;
+            this.physical = physical;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        /**
+         * Removes this statement from use, closing it immediately if it is
+         * not currently handed out
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         */
+        public void evict() {
+            synchronized (this.owner) {
+                this.evicted = true;
+                if (this.inUse) {
+                    return;
+                }
+            }
+            Databases.close(this.physical);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    this.checkIn();
+                    return null;
+                case "isClosed":
+                    return !this.inUse || this.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+            }
+            return StatementCache.delegate(this.physical, method, args);
+        }
+
+        /**
+         * Returns this statement to the cache, or closes it if it has been
+         * evicted
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         */
+        private void checkIn() {
+            if (!this.inUse) {
+                return;
+            }
+            boolean close = this.evicted;
+            if (!close) {
+                try {
+                    this.physical.clearParameters();
+                    this.physical.clearBatch();
+                } catch (SQLException ex) {
+                    close = true;
+                }
+            }
+            synchronized (this.owner) {
+                this.inUse = false;
+                close |= this.evicted;
+                if (close && !this.evicted) {
+                    this.evicted = true;
+                    this.owner.statements.values().remove(this);
+                }
+            }
+            if (close) {
+                Databases.close(this.physical);
+            }
+        }
+
+    }
+
+}
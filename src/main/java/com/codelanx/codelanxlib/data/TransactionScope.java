@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * The {@link SQLDataType} handed to the function of
+ * {@link SQLDataType#transaction(int, SQLFunction)}. Every operation runs upon
+ * the single connection of the transaction, and the first failed operation is
+ * remembered so that the transaction can be rolled back even though the
+ * operation itself only reports the failure through its {@link SQLResponse}
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+final class TransactionScope implements SQLDataType {
+
+    private final SQLDataType source;
+    private final Connection con;
+    private SQLException failure;
+
+    /**
+     * Binds a new scope to the connection of a transaction
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param source The {@link SQLDataType} the transaction was started upon
+     * @param con The {@link Connection} of the transaction
+     */
+    public TransactionScope(SQLDataType source, Connection con) {
+        this.source = source;
+        this.con = con;
+    }
+
+    /**
+     * Returns the first exception thrown by an operation in this scope
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The first failure, or {@code null} if none occurred
+     */
+    public SQLException getFailure() {
+        return this.failure;
+    }
+
+    private <T extends SQLResponse<?>> T track(T resp) {
+        if (this.failure == null && resp.getException() != null) {
+            this.failure = resp.getException();
+        }
+        return resp;
+    }
+
+    @Override
+    public <R> SQLResponse<R> query(SQLFunction<? super ResultSet, R> oper, String sql, ParamBinder params) {
+        return this.track(SQLDataType.super.query(oper, sql, params));
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SQLResponse query(SQLConsumer<? super ResultSet> oper, String sql, ParamBinder params) {
+        return this.track(SQLDataType.super.query(oper, sql, params));
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SQLResponse update(String query, ParamBinder params) {
+        return this.track(SQLDataType.super.update(query, params));
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public <T> SQLResponse batchUpdate(String query, int batchSize, Collection<T> params, Function<T, ?>... paramMappers) {
+        return this.track(SQLDataType.super.batchUpdate(query, batchSize, params, paramMappers));
+    }
+
+    @Override
+    public <R> SQLResponse<R> operate(SQLFunction<? super PreparedStatement, R> oper, String sql, ParamBinder params) {
+        return this.track(SQLDataType.super.operate(oper, sql, params));
+    }
+
+    /**
+     * Runs the passed function within the current transaction, rather than
+     * starting a new one
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <R> {@inheritDoc}
+     * @param maxAttempts Ignored, as the outer transaction handles retries
+     * @param oper {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <R> SQLResponse<R> transaction(int maxAttempts, SQLFunction<? super SQLDataType, R> oper) {
+        SQLResponse<R> resp = new SQLResponse<>();
+        try {
+            resp.setResponse(oper.apply(this));
+        } catch (SQLException ex) {
+            resp.setException(ex);
+        }
+        return this.track(resp);
+    }
+
+    @Override
+    public boolean checkTable(String tableName) {
+        return this.source.checkTable(tableName);
+    }
+
+    @Override
+    public boolean checkColumn(String tableName, String columnName) {
+        return this.source.checkColumn(tableName, columnName);
+    }
+
+    @Override
+    public SchemaCache getSchema() {
+        return this.source.getSchema();
+    }
+
+    @Override
+    public Connection getConnection() {
+        return this.con;
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        return this.source.getStreamingFetchSize();
+    }
+
+    /**
+     * Does nothing, as the connection belongs to the transaction
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void setErrorOutput(boolean errors) {
+        this.source.setErrorOutput(errors);
+    }
+
+    @Override
+    public boolean isSendingErrorOutput() {
+        return this.source.isSendingErrorOutput();
+    }
+
+}
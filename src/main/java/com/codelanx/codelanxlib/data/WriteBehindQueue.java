@@ -0,0 +1,595 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data;
+
+import com.codelanx.codelanxlib.logging.Debugger;
+import com.codelanx.codelanxlib.util.Scheduler;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Buffers writes for a single SQL template and commits them to an
+ * {@link SQLDataType} in the background. Writes to the same key are coalesced
+ * while they wait, either keeping only the latest write or merging them (such
+ * as adding counters together), and are flushed as a single JDBC batch within
+ * one transaction once the queue reaches a size threshold or a time interval
+ * passes. An example usage would be:
+ * <br><br>{@code
+ * WriteBehindQueue<UUID, Stat> kills = WriteBehindQueue.<UUID, Stat>builder(db,
+ *         "INSERT INTO kills (uuid, amount) VALUES (?, ?) ON DUPLICATE KEY UPDATE amount = amount + VALUES(amount)")
+ *     .key(Stat::getUUID)
+ *     .merge((older, newer) -> new Stat(older.getUUID(), older.getAmount() + newer.getAmount()))
+ *     .mappers(Stat::getUUIDBytes, Stat::getAmount)
+ *     .build();
+ * kills.add(new Stat(player, 1));
+ * }
+ * <br><br>
+ * A write which keeps failing is retried at most
+ * {@link Builder#maxRetries(int)} times as part of a batch; after that it is
+ * written on its own, and dropped if it still fails so that one bad row cannot
+ * hold back the rest of the queue. Dropped writes are passed to the
+ * {@link Builder#onFailure(BiConsumer)} callback, if one is set
+ * <br><br>
+ * Queues should be closed when the owning plugin disables, which flushes any
+ * remaining writes. As a safety net, CodelanxLib flushes every open queue when
+ * it is disabled
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ * 
+ * @param <K> The type of the key writes are coalesced by
+ * @param <T> The type of the objects being written
+ */
+public class WriteBehindQueue<K, T> implements AutoCloseable {
+
+    private static final List<WriteBehindQueue<?, ?>> OPEN = new CopyOnWriteArrayList<>();
+    private final SQLDataType db;
+    private final String sql;
+    private final Function<? super T, ? extends K> key;
+    private final BinaryOperator<T> merge;
+    private final Function<T, ?>[] mappers;
+    private final int maxSize;
+    private final int maxRetries;
+    private final BiConsumer<? super T, ? super SQLException> onFailure;
+    private final ScheduledFuture<?> timer;
+    private final Lock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private Map<K, T> pending = new LinkedHashMap<>();
+    private final Map<K, Integer> attempts = new HashMap<>(); //guarded by flushLock
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long lastFlushNanos = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a new {@link WriteBehindQueue} from a {@link Builder}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param builder The {@link Builder} used for constructing this queue
+     */
+    private WriteBehindQueue(Builder<K, T> builder) {
+        this.db = builder.db;
+        this.sql = builder.sql;
+        this.key = builder.key;
+        this.merge = builder.merge;
+        this.mappers = builder.mappers;
+        this.maxSize = builder.maxSize;
+        this.maxRetries = builder.maxRetries;
+        this.onFailure = builder.onFailure;
+        this.timer = Scheduler.runAsyncTaskRepeat(this::flush, builder.intervalSeconds, builder.intervalSeconds);
+        WriteBehindQueue.OPEN.add(this);
+    }
+
+    /**
+     * Returns a new {@link Builder} for a {@link WriteBehindQueue}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <K> The type of the key writes are coalesced by
+     * @param <T> The type of the objects being written
+     * @param db The {@link SQLDataType} to write to
+     * @param sql The SQL template to execute for each write
+     * @return A new {@link Builder}
+     */
+    public static <K, T> Builder<K, T> builder(SQLDataType db, String sql) {
+        return new Builder<>(db, sql);
+    }
+
+    /**
+     * Queues a write. If a write for the same key is already pending, the two
+     * are coalesced according to this queue's merge function
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param value The object to write
+     * @throws IllegalStateException If this queue has been closed
+     */
+    public void add(T value) {
+        Validate.notNull(value, "Cannot queue a null write");
+        if (this.closed) {
+            throw new IllegalStateException("WriteBehindQueue has been closed");
+        }
+        K k = this.key.apply(value);
+        int size;
+        synchronized (this) {
+            T old = this.pending.put(k, value);
+            if (old != null) {
+                this.coalesced.incrementAndGet();
+                if (this.merge != null) {
+                    this.pending.put(k, this.merge.apply(old, value));
+                }
+            }
+            size = this.pending.size();
+        }
+        this.writes.incrementAndGet();
+        if (size >= this.maxSize && this.flushQueued.compareAndSet(false, true)) {
+            try {
+                SQLExecutor.get().execute(() -> {
+                    this.flushQueued.set(false);
+                    this.flush();
+                });
+            } catch (RejectedExecutionException ex) {
+                //the database threads are saturated, leave it to the flush timer
+                this.flushQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes all pending values to the database in a single batch. Should the
+     * batch fail, the values are queued again, behind any writes made since.
+     * Values which have already failed {@link Builder#maxRetries(int)} times
+     * are written individually instead, and dropped if they fail again
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of values written
+     */
+    public int flush() {
+        this.flushLock.lock();
+        try {
+            Map<K, T> flushing;
+            synchronized (this) {
+                if (this.pending.isEmpty()) {
+                    return 0;
+                }
+                flushing = this.pending;
+                this.pending = new LinkedHashMap<>();
+            }
+            int written = 0;
+            if (!this.attempts.isEmpty()) {
+                //isolate writes which have hit the retry cap from the batch
+                for (Iterator<Map.Entry<K, T>> itr = flushing.entrySet().iterator(); itr.hasNext();) {
+                    Map.Entry<K, T> ent = itr.next();
+                    if (this.attempts.getOrDefault(ent.getKey(), 0) >= this.maxRetries) {
+                        itr.remove();
+                        written += this.writeSingle(ent.getKey(), ent.getValue());
+                    }
+                }
+                if (flushing.isEmpty()) {
+                    return written;
+                }
+            }
+            long start = System.nanoTime();
+            List<T> values = new ArrayList<>(flushing.values());
+            SQLResponse<?> resp = this.db.batchUpdate(this.sql, values.size(), values, this.mappers);
+            long time = System.nanoTime() - start;
+            this.lastFlushNanos = time;
+            this.flushNanos.addAndGet(time);
+            this.maxFlushNanos.accumulateAndGet(time, Math::max);
+            this.flushes.incrementAndGet();
+            if (resp.getException() != null) {
+                this.failures.incrementAndGet();
+                flushing.keySet().forEach(k -> this.attempts.merge(k, 1, Integer::sum));
+                this.requeue(flushing);
+                return written;
+            }
+            if (!this.attempts.isEmpty()) {
+                this.attempts.keySet().removeAll(flushing.keySet());
+            }
+            return written + values.size();
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a value which has exhausted its batch retries on its own,
+     * dropping it should it fail again. Must be called while holding the
+     * flush lock
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param k The key of the value
+     * @param value The value to write
+     * @return {@code 1} if the value was written, {@code 0} otherwise
+     */
+    private int writeSingle(K k, T value) {
+        this.attempts.remove(k);
+        SQLResponse<?> resp = this.db.batchUpdate(this.sql, 1, Collections.singletonList(value), this.mappers);
+        if (resp.getException() == null) {
+            return 1;
+        }
+        this.dropped.incrementAndGet();
+        Debugger.error(resp.getException(), "Dropping write to %s after %d failed attempts", this.sql, this.maxRetries + 1);
+        if (this.onFailure != null) {
+            try {
+                this.onFailure.accept(value, resp.getException());
+            } catch (RuntimeException ex) {
+                Debugger.error(ex, "Error in WriteBehindQueue failure callback");
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Places failed writes back into the queue. Writes made since the failed
+     * flush take precedence, or are merged on top of the failed writes
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param failed The writes that failed
+     */
+    private synchronized void requeue(Map<K, T> failed) {
+        Map<K, T> newer = this.pending;
+        this.pending = failed;
+        newer.forEach((k, v) -> {
+            T old = this.pending.put(k, v);
+            if (old != null && this.merge != null) {
+                this.pending.put(k, this.merge.apply(old, v));
+            }
+        });
+    }
+
+    /**
+     * Returns the number of writes waiting to be flushed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The current queue depth
+     */
+    public synchronized int getDepth() {
+        return this.pending.size();
+    }
+
+    /**
+     * Returns the total number of writes added to this queue
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of writes
+     */
+    public long getWriteCount() {
+        return this.writes.get();
+    }
+
+    /**
+     * Returns the number of writes which were coalesced into an already
+     * pending write for the same key
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of coalesced writes
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Returns the number of non-empty flushes made by this queue
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of flushes
+     */
+    public long getFlushCount() {
+        return this.flushes.get();
+    }
+
+    /**
+     * Returns the number of flushes which failed and were queued again
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of failed flushes
+     */
+    public long getFailedFlushCount() {
+        return this.failures.get();
+    }
+
+    /**
+     * Returns the number of writes which were dropped after exhausting their
+     * retries
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The number of dropped writes
+     */
+    public long getDroppedCount() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Returns how long the most recent flush took
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param unit The {@link TimeUnit} to return the time in
+     * @return The latency of the last flush
+     */
+    public long getLastFlushTime(TimeUnit unit) {
+        return unit.convert(this.lastFlushNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the average time taken to flush this queue
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param unit The {@link TimeUnit} to return the time in
+     * @return The average flush latency
+     */
+    public long getAverageFlushTime(TimeUnit unit) {
+        long count = this.flushes.get();
+        return count == 0 ? 0 : unit.convert(this.flushNanos.get() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest time taken to flush this queue
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param unit The {@link TimeUnit} to return the time in
+     * @return The maximum flush latency
+     */
+    public long getMaxFlushTime(TimeUnit unit) {
+        return unit.convert(this.maxFlushNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the flush timer and writes any remaining values. Further calls to
+     * {@link WriteBehindQueue#add(Object)} will fail
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.timer.cancel(false);
+        WriteBehindQueue.OPEN.remove(this);
+        this.flush();
+        int left = this.getDepth();
+        if (left > 0) {
+            Debugger.print("WriteBehindQueue closed with %d unwritten values for: %s", left, this.sql);
+        }
+    }
+
+    /**
+     * Closes every open {@link WriteBehindQueue}, flushing their contents
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    public static void closeAll() {
+        WriteBehindQueue.OPEN.forEach(WriteBehindQueue::close);
+    }
+
+    /**
+     * Builder object for a {@link WriteBehindQueue}. Defaults to
+     * last-write-wins coalescing, flushing at 500 pending values, flushing
+     * every 5 seconds, and retrying a failing write in 3 batches before it is
+     * written alone
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <K> The type of the key writes are coalesced by
+     * @param <T> The type of the objects being written
+     */
+    public static final class Builder<K, T> {
+
+        private final SQLDataType db;
+        private final String sql;
+        private Function<? super T, ? extends K> key;
+        private BinaryOperator<T> merge;
+        private Function<T, ?>[] mappers;
+        private int maxSize = 500;
+        private long intervalSeconds = 5;
+        private int maxRetries = 3;
+        private BiConsumer<? super T, ? super SQLException> onFailure;
+
+        private Builder(SQLDataType db, String sql) {
+            Validate.notNull(db, "SQLDataType cannot be null");
+            Validate.notNull(sql, "SQL template cannot be null");
+            this.db = db;
+            this.sql = sql;
+        }
+
+        /**
+         * Sets the function used to determine which writes refer to the same
+         * row, typically the primary key of the written object
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param key The key function
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, T> key(Function<? super T, ? extends K> key) {
+            this.key = key;
+            return this;
+        }
+
+        /**
+         * Sets the function used to combine two pending writes to the same
+         * key. The older write is the first argument. If not set, the newer
+         * write replaces the older one
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param merge The merging function
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, T> merge(BinaryOperator<T> merge) {
+            this.merge = merge;
+            return this;
+        }
+
+        /**
+         * Sets the functions mapping a written object to the parameters of
+         * the SQL template, in the same manner as
+         * {@link SQLDataType#batchUpdate(String, int, java.util.Collection, Function...)}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param mappers A series of functions for mapping objects to params
+         * @return This {@link Builder} instance
+         */
+        @SafeVarargs
+        public final Builder<K, T> mappers(Function<T, ?>... mappers) {
+            this.mappers = mappers;
+            return this;
+        }
+
+        /**
+         * Sets the number of pending values which triggers a flush
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param maxSize The size threshold
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, T> maxSize(int maxSize) {
+            Validate.isTrue(maxSize > 0, "maxSize must be greater than 0");
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets the time between periodic flushes
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param time The amount of time
+         * @param unit The {@link TimeUnit} of the {@code time} parameter
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, T> interval(long time, TimeUnit unit) {
+            this.intervalSeconds = Math.max(1, unit.toSeconds(time));
+            return this;
+        }
+
+        /**
+         * Sets the number of failed batches a write may be part of before it
+         * is written on its own. If that write fails as well, the value is
+         * dropped and passed to the {@link #onFailure(BiConsumer)} callback
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param maxRetries The number of batch retries, or {@code 0} to
+         *                   write values alone after their first failure
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, T> maxRetries(int maxRetries) {
+            Validate.isTrue(maxRetries >= 0, "maxRetries cannot be negative");
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * Sets a callback for writes which are dropped after exhausting their
+         * retries, along with the {@link SQLException} of the final attempt.
+         * The callback is run upon the flushing thread
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param onFailure The callback for dropped writes
+         * @return This {@link Builder} instance
+         */
+        public Builder<K, T> onFailure(BiConsumer<? super T, ? super SQLException> onFailure) {
+            this.onFailure = onFailure;
+            return this;
+        }
+
+        /**
+         * Builds and starts the {@link WriteBehindQueue}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The new {@link WriteBehindQueue}
+         * @throws IllegalArgumentException If the key or mappers are not set
+         */
+        public WriteBehindQueue<K, T> build() {
+            Validate.notNull(this.key, "A key function is required");
+            Validate.isTrue(this.mappers != null && this.mappers.length > 0, "Parameter mappers are required");
+            return new WriteBehindQueue<>(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data.types;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes files by way of a temporary file beside the target, which is moved
+ * over the target only once it has been completely written and flushed to
+ * the disk. A crash, power loss or error mid-write therefore never leaves a
+ * truncated file behind. The replaced file keeps its permissions, and new
+ * files are created with the default permissions of the platform
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+final class AtomicFile {
+
+    private AtomicFile() {
+    }
+
+    /**
+     * Writes a file through the passed {@link Writer}, replacing the target
+     * only if the write completes
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param target The file to write
+     * @param writer The operation which writes the temporary file
+     * @throws IOException If the file could not be written or moved
+     */
+    static void write(File target, Writer writer) throws IOException {
+        Path dest = target.getAbsoluteFile().toPath();
+        Path dir = dest.getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path temp = AtomicFile.createTemp(dest);
+        try {
+            writer.write(temp);
+            if (Files.exists(dest) && Files.getFileAttributeView(dest, PosixFileAttributeView.class) != null) {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(dest));
+            }
+            //the data must reach the disk before the rename can
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, dest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, dest, StandardCopyOption.REPLACE_EXISTING);
+            }
+            AtomicFile.syncDirectory(dir);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty temporary file beside the target. Unlike
+     * {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute...)},
+     * which is only readable by its owner, the file is created with the
+     * default permissions of the platform
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param dest The file which will be replaced
+     * @return The created temporary file
+     * @throws IOException If the file could not be created
+     */
+    private static Path createTemp(Path dest) throws IOException {
+        String name = dest.getFileName().toString();
+        for (;;) {
+            Path temp = dest.resolveSibling(name + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException ex) {
+                //pick another name
+            }
+        }
+    }
+
+    /**
+     * Flushes a directory so that a rename within it is durable. Not every
+     * platform allows opening a directory, in which case this does nothing
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param dir The directory to flush, or {@code null}
+     */
+    private static void syncDirectory(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            //e.g. Windows, where directories cannot be opened
+        }
+    }
+
+    /**
+     * Writes the contents of a temporary file
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     */
+    @FunctionalInterface
+    static interface Writer {
+
+        /**
+         * Writes the full contents of the file to the passed path
+         *
+         * @since 0.2.0
+         * @version 0.2.0
+         *
+         * @param temp The temporary file to write to
+         * @throws IOException If the file could not be written
+         */
+        public void write(Path temp) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,623 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data.types;
+
+import com.codelanx.codelanxlib.data.FileDataType;
+import com.codelanx.codelanxlib.logging.Debugger;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+
+/**
+ * Represents a compact binary file that has been loaded into memory. Values
+ * are stored with a one-byte type tag and fixed-width, big-endian payloads,
+ * and every key and string value is written once to a string table at the
+ * start of the file and referenced by index afterwards, which keeps files
+ * with many repeated keys small. Maps and lists are prefixed with the length
+ * in bytes of their contents, so a reader can skip over them without decoding
+ * them. Files are read through a memory-mapped {@link FileChannel}.
+ * <br><br>
+ * Supported values are {@code null}, booleans, integral and floating point
+ * numbers, strings, maps, lists, {@link ConfigurationSection
+ * ConfigurationSections} and {@link ConfigurationSerializable} objects, the
+ * latter being stored in the same form YAML uses. Existing YAML or JSON files
+ * can be converted using {@link Binary#convert(FileDataType, File)}
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public class Binary implements FileDataType {
+
+    /** The magic number which starts every binary file, "CLXB" */
+    static final int MAGIC = 0x434C5842;
+    /** The current format version */
+    static final byte VERSION = 1;
+    static final byte NULL = 0;
+    static final byte TRUE = 1;
+    static final byte FALSE = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    static final byte STRING = 6;
+    static final byte MAP = 7;
+    static final byte LIST = 8;
+    /** The {@link File} location of this {@link FileDataType} */
+    protected final File location;
+    /** The root map of values */
+    protected final Map<String, Object> root;
+    private Exception loadError;
+
+    /**
+     * Reads and loads a binary file into memory. A missing or empty file is
+     * loaded as an empty root
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param location The location of the file to read
+     */
+    public Binary(File location) {
+        this.location = location;
+        Map<String, Object> root = null;
+        try {
+            root = Binary.read(location);
+        } catch (IOException ex) {
+            this.loadError = ex;
+            Debugger.error(ex, "Error loading binary file '%s'", location.getPath());
+        }
+        this.root = root == null ? new LinkedHashMap<>() : root;
+    }
+
+    /**
+     * Wraps an already loaded root map
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param location The location of the file
+     * @param root The root map of values
+     */
+    protected Binary(File location, Map<String, Object> root) {
+        this.location = location;
+        this.root = root;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * Setting a value of {@code null} removes the path
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path {@inheritDoc}
+     * @param value {@inheritDoc}
+     */
+    @Override
+    public void set(String path, Object value) {
+        String[] ladder = Ladders.of(path);
+        Map<String, Object> container = this.getContainer(value != null, ladder);
+        if (value != null) {
+            container.put(ladder[ladder.length - 1], value);
+        } else if (container != null) {
+            container.remove(ladder[ladder.length - 1]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isSet(String path) {
+        String[] ladder = Ladders.of(path);
+        Map<String, Object> container = this.getContainer(false, ladder);
+        return container != null && container.containsKey(ladder[ladder.length - 1]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Object get(String path) {
+        return this.get(path, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path {@inheritDoc}
+     * @param def {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Object get(String path, Object def) {
+        String[] ladder = Ladders.of(path);
+        Map<String, Object> container = this.getContainer(false, ladder);
+        Object back = container == null ? null : container.get(ladder[ladder.length - 1]);
+        return back == null ? def : back;
+    }
+
+    /**
+     * Returns the map holding the last key of the passed ladder
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param makePath Whether to create any missing maps along the way
+     * @param ladder The split path to look up
+     * @return The containing map, or {@code null} if it does not exist and
+     *         {@code makePath} is {@code false}
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Object> getContainer(boolean makePath, String... ladder) {
+        Map<String, Object> container = this.root;
+        for (int i = 0; i < ladder.length - 1; i++) {
+            Object next = container.get(ladder[i]);
+            if (!(next instanceof Map)) {
+                if (!makePath) {
+                    return null;
+                }
+                next = new LinkedHashMap<>();
+                container.put(ladder[i], next);
+            }
+            container = (Map<String, Object>) next;
+        }
+        return container;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void save() throws IOException {
+        this.save(this.location);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param target {@inheritDoc}
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void save(File target) throws IOException {
+        Encoder enc = new Encoder();
+        enc.measure(this.root);
+        AtomicFile.write(target, temp -> {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                enc.write(out, this.root);
+            }
+        });
+    }
+
+    /**
+     * Saves the information in memory to the file it was loaded from upon a
+     * background thread
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @see FileDataType#saveAsync(File)
+     * @return A {@link CompletableFuture} which completes once the file has
+     *         been written
+     */
+    public CompletableFuture<Void> saveAsync() {
+        return this.saveAsync(this.location);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public FileDataType snapshot() {
+        return new Binary(this.location, (Map<String, Object>) Binary.copy(this.root));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Exception getLoadError() {
+        return this.loadError;
+    }
+
+    /**
+     * Copies the values of another {@link FileDataType} into a new binary
+     * file, and saves it
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param source The {@link Yaml}, {@link Json} or {@link Binary} data to
+     *               convert
+     * @param target The location of the new binary file
+     * @return The new {@link Binary} instance
+     * @throws IOException If the new file could not be saved
+     * @throws IllegalArgumentException If the source type is not supported
+     */
+    @SuppressWarnings("unchecked")
+    public static Binary convert(FileDataType source, File target) throws IOException {
+        Map<String, Object> root;
+        if (source instanceof Binary) {
+            root = (Map<String, Object>) Binary.copy(((Binary) source).root);
+        } else if (source instanceof Json) {
+            root = (Map<String, Object>) Binary.copy(((Json) source).root);
+        } else if (source instanceof Yaml) {
+            root = (Map<String, Object>) Binary.copy(((Yaml) source).getFileConfiguration());
+        } else {
+            throw new IllegalArgumentException("Cannot convert from '" + source.getClass().getName() + "'");
+        }
+        Binary back = new Binary(target, root);
+        back.save();
+        return back;
+    }
+
+    /**
+     * Reads the root map of a binary file
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param location The file to read
+     * @return The root map, which is empty for a missing or empty file
+     * @throws IOException If the file could not be read or is malformed
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> read(File location) throws IOException {
+        if (!location.exists() || location.length() == 0) {
+            return new LinkedHashMap<>();
+        }
+        try (FileChannel channel = FileChannel.open(location.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            StringTable strings = Binary.readHeader(buf);
+            Object root = Binary.readValue(buf, strings);
+            if (!(root instanceof Map)) {
+                throw new IOException("Root of binary file is not a map");
+            }
+            return (Map<String, Object>) root;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("Binary file is truncated or corrupt", ex);
+        }
+    }
+
+    /**
+     * Verifies the header of a binary file and reads its string table,
+     * leaving the buffer positioned at the root value
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param buf The buffer to read from
+     * @return The string table
+     * @throws IOException If the header is not valid
+     */
+    static StringTable readHeader(ByteBuffer buf) throws IOException {
+        if (buf.getInt() != Binary.MAGIC) {
+            throw new IOException("Not a binary data file");
+        }
+        byte version = buf.get();
+        if (version != Binary.VERSION) {
+            throw new IOException("Unsupported binary format version " + version);
+        }
+        return new StringTable(buf);
+    }
+
+    /**
+     * Reads the value at the buffer's position, advancing past it
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param buf The buffer to read from
+     * @param strings The string table of the file
+     * @return The decoded value
+     * @throws IOException If an unknown type tag is found
+     */
+    static Object readValue(ByteBuffer buf, StringTable strings) throws IOException {
+        byte tag = buf.get();
+        switch (tag) {
+            case Binary.NULL:
+                return null;
+            case Binary.TRUE:
+                return true;
+            case Binary.FALSE:
+                return false;
+            case Binary.INT:
+                return buf.getInt();
+            case Binary.LONG:
+                return buf.getLong();
+            case Binary.DOUBLE:
+                return buf.getDouble();
+            case Binary.STRING:
+                return strings.get(buf.getInt());
+            case Binary.MAP:
+                buf.getInt();
+                int size = buf.getInt();
+                Map<String, Object> map = new LinkedHashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+                for (int i = 0; i < size; i++) {
+                    String key = strings.get(buf.getInt());
+                    map.put(key, Binary.readValue(buf, strings));
+                }
+                if (map.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                    ConfigurationSerializable back = ConfigurationSerialization.deserializeObject(map);
+                    if (back != null) {
+                        return back;
+                    }
+                }
+                return map;
+            case Binary.LIST:
+                buf.getInt();
+                int length = buf.getInt();
+                List<Object> list = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    list.add(Binary.readValue(buf, strings));
+                }
+                return list;
+            default:
+                throw new IOException("Unknown value type " + tag + " at position " + (buf.position() - 1));
+        }
+    }
+
+    /**
+     * Advances the buffer past the value at its position without decoding it
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param buf The buffer to advance
+     * @throws IOException If an unknown type tag is found
+     */
+    static void skipValue(ByteBuffer buf) throws IOException {
+        byte tag = buf.get();
+        switch (tag) {
+            case Binary.NULL:
+            case Binary.TRUE:
+            case Binary.FALSE:
+                break;
+            case Binary.INT:
+            case Binary.STRING:
+                buf.position(buf.position() + 4);
+                break;
+            case Binary.LONG:
+            case Binary.DOUBLE:
+                buf.position(buf.position() + 8);
+                break;
+            case Binary.MAP:
+            case Binary.LIST:
+                int length = buf.getInt();
+                buf.position(buf.position() + length);
+                break;
+            default:
+                throw new IOException("Unknown value type " + tag + " at position " + (buf.position() - 1));
+        }
+    }
+
+    /**
+     * Deeply copies any maps, lists and {@link ConfigurationSection
+     * ConfigurationSections} within a value
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param value The value to copy
+     * @return The copied value, or the original if it is not a container
+     */
+    private static Object copy(Object value) {
+        if (value instanceof ConfigurationSection) {
+            return Binary.copy(((ConfigurationSection) value).getValues(false));
+        } else if (value instanceof Map) {
+            Map<String, Object> back = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> back.put(String.valueOf(k), Binary.copy(v)));
+            return back;
+        } else if (value instanceof List) {
+            List<Object> back = new ArrayList<>(((List<?>) value).size());
+            ((List<?>) value).forEach(o -> back.add(Binary.copy(o)));
+            return back;
+        }
+        return value;
+    }
+
+    /**
+     * Writes a tree of values in two passes: the first collects the string
+     * table and the byte length of every map and list, and the second writes
+     * the file
+     *
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     */
+    private static class Encoder {
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<Object, Integer> lengths = new IdentityHashMap<>();
+        private final Map<Object, Map<String, Object>> serialized = new IdentityHashMap<>();
+
+        /**
+         * Returns the number of bytes the passed value will be written as,
+         * recording any strings and container lengths along the way
+         *
+         * @since 0.2.0
+         * @version 0.2.0
+         *
+         * @param value The value to measure
+         * @return The encoded size of the value
+         * @throws IOException If the value is of an unsupported type
+         */
+        public int measure(Object value) throws IOException {
+            if (value == null || value instanceof Boolean) {
+                return 1;
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return 5;
+            } else if (value instanceof Long || value instanceof Double || value instanceof Float) {
+                return 9;
+            } else if (value instanceof String || value instanceof Character) {
+                this.intern(value.toString());
+                return 5;
+            } else if (value instanceof Map) {
+                int length = 4;
+                for (Map.Entry<?, ?> ent : ((Map<?, ?>) value).entrySet()) {
+                    this.intern(String.valueOf(ent.getKey()));
+                    length += 4 + this.measure(ent.getValue());
+                }
+                this.lengths.put(value, length);
+                return 5 + length;
+            } else if (value instanceof List) {
+                int length = 4;
+                for (Object o : (List<?>) value) {
+                    length += this.measure(o);
+                }
+                this.lengths.put(value, length);
+                return 5 + length;
+            } else if (value instanceof ConfigurationSection) {
+                return this.measure(this.serialize(value, ((ConfigurationSection) value).getValues(false)));
+            } else if (value instanceof ConfigurationSerializable) {
+                ConfigurationSerializable ser = (ConfigurationSerializable) value;
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, ConfigurationSerialization.getAlias(ser.getClass()));
+                map.putAll(ser.serialize());
+                return this.measure(this.serialize(value, map));
+            }
+            throw new IOException("Cannot store value of type '" + value.getClass().getName() + "' in a binary file");
+        }
+
+        /**
+         * Writes the header, string table and passed root value
+         *
+         * @since 0.2.0
+         * @version 0.2.0
+         *
+         * @param out The stream to write to
+         * @param root The root value, which must already have been measured
+         * @throws IOException If the stream could not be written to
+         */
+        public void write(DataOutputStream out, Object root) throws IOException {
+            out.writeInt(Binary.MAGIC);
+            out.writeByte(Binary.VERSION);
+            out.writeInt(this.strings.size());
+            for (String s : this.strings.keySet()) {
+                byte[] raw = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(raw.length);
+                out.write(raw);
+            }
+            this.writeValue(out, root);
+        }
+
+        private void writeValue(DataOutputStream out, Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(Binary.NULL);
+            } else if (value instanceof Boolean) {
+                out.writeByte((Boolean) value ? Binary.TRUE : Binary.FALSE);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                out.writeByte(Binary.INT);
+                out.writeInt(((Number) value).intValue());
+            } else if (value instanceof Long) {
+                out.writeByte(Binary.LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double || value instanceof Float) {
+                out.writeByte(Binary.DOUBLE);
+                out.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof String || value instanceof Character) {
+                out.writeByte(Binary.STRING);
+                out.writeInt(this.strings.get(value.toString()));
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                out.writeByte(Binary.MAP);
+                out.writeInt(this.lengths.get(value));
+                out.writeInt(map.size());
+                for (Map.Entry<?, ?> ent : map.entrySet()) {
+                    out.writeInt(this.strings.get(String.valueOf(ent.getKey())));
+                    this.writeValue(out, ent.getValue());
+                }
+            } else if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                out.writeByte(Binary.LIST);
+                out.writeInt(this.lengths.get(value));
+                out.writeInt(list.size());
+                for (Object o : list) {
+                    this.writeValue(out, o);
+                }
+            } else {
+                this.writeValue(out, this.serialized.get(value));
+            }
+        }
+
+        private Map<String, Object> serialize(Object value, Map<String, Object> map) {
+            this.serialized.put(value, map);
+            return map;
+        }
+
+        private void intern(String s) {
+            this.strings.putIfAbsent(s, this.strings.size());
+        }
+
+    }
+
+}
@@ -22,19 +22,34 @@ package com.codelanx.codelanxlib.data.types;
 import com.codelanx.codelanxlib.data.FileDataType;
 import com.codelanx.codelanxlib.logging.Debugger;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 /**
- * Represents a JSON file that has been parsed and loaded into memory.
+ * Represents a JSON file that has been parsed and loaded into memory. Saves
+ * are streamed into a temporary file beside the target, which is then moved
+ * over the target, so a crash mid-save never leaves a truncated file behind.
+ * <br><br>
+ * Paths are split into ladders once and shared between all instances, and an
+ * optional index of leaf values by their full path can be enabled through
+ * {@link Json#setIndexed(boolean)} for files which are read far more often
+ * than they are written
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public class Json implements FileDataType {
 
@@ -42,12 +57,16 @@ public class Json implements FileDataType {
     protected final File location;
     /** The root {@link JSONObject} */
     protected final JSONObject root;
+    private static final Object ABSENT = new Object();
+    private volatile Map<String, Object> index;
+    private final AtomicLong version = new AtomicLong();
+    private Exception loadError;
 
     /**
      * Reads and loads a JSON file into memory
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param location The location of the file to parse
      * @throws ParseException If the file is not in standard JSON format
@@ -56,19 +75,34 @@ public class Json implements FileDataType {
         this.location = location;
         JSONParser parser = new JSONParser();
         JSONObject root = null;
-        try {
-            root = (JSONObject) parser.parse(new FileReader(this.location));
+        try (Reader in = Files.newBufferedReader(this.location.toPath(), StandardCharsets.UTF_8)) {
+            root = (JSONObject) parser.parse(in);
         } catch (IOException ex) {
+            this.loadError = ex;
             Debugger.error(ex, "Error loading JSON file");
         }
         this.root = root;
     }
 
+    /**
+     * Wraps an already parsed {@link JSONObject}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param location The location of the file
+     * @param root The root {@link JSONObject}
+     */
+    protected Json(File location, JSONObject root) {
+        this.location = location;
+        this.root = root;
+    }
+
     /**
      * {@inheritDoc}
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param path {@inheritDoc}
      * @param value {@inheritDoc}
@@ -76,20 +110,33 @@ public class Json implements FileDataType {
     @Override
     public void set(String path, Object value) {
         String[] ladder = this.getLadder(path);
-        this.traverse(true, ladder).put(ladder[ladder.length - 1], value);
+        Object old = this.traverse(true, ladder).put(ladder[ladder.length - 1], value);
+        this.version.incrementAndGet();
+        Map<String, Object> idx = this.index;
+        if (idx != null) {
+            //only containers have indexed paths beneath them
+            Json.invalidate(idx, path, ladder, old instanceof Map || value instanceof Map);
+        }
     }
 
     /**
      * {@inheritDoc}
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param path {@inheritDoc}
      * @return {@inheritDoc}
      */
     @Override
     public boolean isSet(String path) {
+        Map<String, Object> idx = this.index;
+        if (idx != null) {
+            Object cached = idx.get(path);
+            if (cached != null && cached != Json.ABSENT) {
+                return true;
+            }
+        }
         String[] ladder = this.getLadder(path);
         return this.getContainer(ladder).containsKey(ladder[ladder.length - 1]);
     }
@@ -98,22 +145,39 @@ public class Json implements FileDataType {
      * {@inheritDoc}
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param path {@inheritDoc}
      * @return {@inheritDoc}
      */
     @Override
     public Object get(String path) {
+        Map<String, Object> idx = this.index;
+        if (idx != null) {
+            Object cached = idx.get(path);
+            if (cached != null) {
+                return cached == Json.ABSENT ? null : cached;
+            }
+        }
+        long read = this.version.get();
         String[] ladder = this.getLadder(path);
-        return this.getContainer(ladder).get(ladder[ladder.length - 1]);
+        Object back = this.getContainer(ladder).get(ladder[ladder.length - 1]);
+        if (idx != null && !(back instanceof Map) && !(back instanceof List)) {
+            Object cached = back == null ? Json.ABSENT : back;
+            idx.put(path, cached);
+            if (this.version.get() != read) {
+                //a set raced this read, and its invalidation may have run first
+                idx.remove(path, cached);
+            }
+        }
+        return back;
     }
 
     /**
      * {@inheritDoc}
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param path {@inheritDoc}
      * @param def {@inheritDoc}
@@ -121,9 +185,65 @@ public class Json implements FileDataType {
      */
     @Override
     public Object get(String path, Object def) {
-        String[] ladder = this.getLadder(path);
-        JSONObject container = this.traverse(false, ladder);
-        return container.get(ladder[ladder.length - 1]);
+        return this.get(path);
+    }
+
+    /**
+     * Enables or disables the index of leaf values by their full path. While
+     * enabled, repeated reads of a path are a single hash lookup, and calls
+     * to {@link Json#set(String, Object)} keep the index up to date. Values
+     * changed by modifying a returned {@link JSONObject} directly will not be
+     * seen by the index, and so it should only be enabled when all writes go
+     * through {@link Json#set(String, Object)}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param indexed {@code true} to enable the index
+     */
+    public void setIndexed(boolean indexed) {
+        this.index = indexed ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Returns whether the index of leaf values is enabled
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @return {@code true} if values are indexed by their full path
+     */
+    public boolean isIndexed() {
+        return this.index != null;
+    }
+
+    /**
+     * Removes any indexed values which may have been changed by setting the
+     * passed path: the path itself, any parent path which may have been
+     * cached as missing, and, if a container was replaced or added, any path
+     * beneath it
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param idx The index to update
+     * @param path The path which was set
+     * @param ladder The split form of {@code path}
+     * @param children Whether paths beneath {@code path} may have changed
+     */
+    private static void invalidate(Map<String, Object> idx, String path, String[] ladder, boolean children) {
+        idx.remove(path);
+        if (children) {
+            String prefix = path + '.';
+            idx.keySet().removeIf(k -> k.startsWith(prefix));
+        }
+        StringBuilder sb = new StringBuilder(path.length());
+        for (int i = 0; i < ladder.length - 1; i++) {
+            if (i > 0) {
+                sb.append('.');
+            }
+            idx.remove(sb.append(ladder[i]).toString());
+        }
     }
 
     /**
@@ -156,16 +276,17 @@ public class Json implements FileDataType {
     }
 
     /**
-     * Converts a period-delimited string into a String array
+     * Converts a period-delimited string into a String array. Ladders are
+     * cached by their path, and so the returned array must not be modified
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param path The path to split
      * @return The split path
      */
     protected String[] getLadder(String path) {
-        return path.split("\\.");
+        return Ladders.of(path);
     }
 
     /**
@@ -214,14 +335,83 @@ public class Json implements FileDataType {
      * {@inheritDoc}
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param target {@inheritDoc}
      * @throws IOException {@inheritDoc}
      */
     @Override
     public void save(File target) throws IOException {
-        new FileWriter(target).write(this.root.toJSONString());
+        AtomicFile.write(target, temp -> {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                this.root.writeJSONString(out);
+            }
+        });
+    }
+
+    /**
+     * Saves the information in memory to the file it was loaded from upon a
+     * background thread
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @see FileDataType#saveAsync(File)
+     * @return A {@link CompletableFuture} which completes once the file has
+     *         been written
+     */
+    public CompletableFuture<Void> saveAsync() {
+        return this.saveAsync(this.location);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public FileDataType snapshot() {
+        return new Json(this.location, (JSONObject) Json.copy(this.root));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Exception getLoadError() {
+        return this.loadError;
+    }
+
+    /**
+     * Deeply copies any maps or lists into new {@link JSONObject} and
+     * {@link JSONArray} instances, so that later changes to the original do
+     * not affect a snapshot
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param value The value to copy
+     * @return The copied value, or the original if it is not a container
+     */
+    private static Object copy(Object value) {
+        if (value instanceof Map) {
+            JSONObject back = new JSONObject();
+            ((Map<?, ?>) value).forEach((k, v) -> back.put(k, Json.copy(v)));
+            return back;
+        } else if (value instanceof List) {
+            JSONArray back = new JSONArray();
+            ((List<?>) value).forEach(o -> back.add(Json.copy(o)));
+            return back;
+        }
+        return value;
     }
 
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data.types;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Splits period-delimited paths into ladders of keys, caching the result for
+ * each path. Ladders are shared, and so must never be modified
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+final class Ladders {
+
+    private static final int MAX_LADDERS = 8192;
+    private static final Map<String, String[]> LADDERS = new ConcurrentHashMap<>();
+
+    private Ladders() {
+    }
+
+    /**
+     * Returns the ladder for the passed path
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path The period-delimited path
+     * @return The split path
+     */
+    static String[] of(String path) {
+        String[] back = Ladders.LADDERS.get(path);
+        if (back == null) {
+            back = path.split("\\.");
+            if (Ladders.LADDERS.size() < Ladders.MAX_LADDERS) {
+                Ladders.LADDERS.putIfAbsent(path, back);
+            }
+        }
+        return back;
+    }
+
+}
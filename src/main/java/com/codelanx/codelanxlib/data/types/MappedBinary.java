@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data.types;
+
+import com.codelanx.codelanxlib.data.FileDataType;
+import com.codelanx.codelanxlib.logging.Debugger;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A read-mostly view of a {@link Binary} file, which memory-maps the file and
+ * decodes values only when they are first requested. Opening the file reads
+ * only the header and the positions of the root's entries; nested maps are
+ * indexed the first time a path passes through them, and values which are
+ * never requested are never decoded onto the heap. Decoded values are cached
+ * by their path.
+ * <br><br>
+ * The first call to {@link MappedBinary#set(String, Object)} decodes the whole
+ * file into a {@link Binary}, which then handles all further operations. A
+ * file which was never modified is not rewritten when saved to its own
+ * location. Files larger than 2GB are not supported.
+ * <br><br>
+ * The mapping is released by the garbage collector rather than upon any
+ * method call, so on platforms which lock mapped files (namely Windows) the
+ * file may not be replaced while an instance is still reachable
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+public class MappedBinary implements FileDataType {
+
+    private static final Object ABSENT = new Object();
+    /** The {@link File} location of this {@link FileDataType} */
+    protected final File location;
+    private final ByteBuffer buf;
+    private final StringTable strings;
+    private final Section root;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private volatile Binary delegate;
+    private volatile Exception loadError;
+
+    /**
+     * Memory-maps a binary file and indexes its root. A missing, empty or
+     * unreadable file is handled as an empty, modifiable {@link Binary}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param location The location of the file to map
+     */
+    public MappedBinary(File location) {
+        this.location = location;
+        ByteBuffer buf = null;
+        StringTable strings = null;
+        Section root = null;
+        if (location.exists() && location.length() > 0) {
+            try (FileChannel channel = FileChannel.open(location.toPath(), StandardOpenOption.READ)) {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                strings = Binary.readHeader(buf);
+                root = new Section(buf.position());
+                root.entries(buf, strings);
+            } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+                this.loadError = ex;
+                Debugger.error(ex, "Error mapping binary file '%s'", location.getPath());
+                buf = null;
+            }
+        }
+        this.buf = buf;
+        this.strings = strings;
+        this.root = root;
+        if (buf == null) {
+            this.delegate = new Binary(location, new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Creates an unmodified view sharing the mapping of another instance
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param other The instance to share the mapping of
+     */
+    private MappedBinary(MappedBinary other) {
+        this.location = other.location;
+        this.buf = other.buf;
+        this.strings = other.strings;
+        this.root = other.root;
+        this.values.putAll(other.values);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * This decodes the whole file into memory if it has not been already
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path {@inheritDoc}
+     * @param value {@inheritDoc}
+     */
+    @Override
+    public void set(String path, Object value) {
+        this.materialize().set(path, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public boolean isSet(String path) {
+        Binary d = this.delegate;
+        if (d != null) {
+            return d.isSet(path);
+        }
+        Object cached = this.values.get(path);
+        if (cached != null && cached != MappedBinary.ABSENT) {
+            return true;
+        }
+        String[] ladder = Ladders.of(path);
+        Section container = this.getContainer(ladder);
+        return container != null && container.entries(this.buf, this.strings).containsKey(ladder[ladder.length - 1]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Object get(String path) {
+        return this.get(path, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path {@inheritDoc}
+     * @param def {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Object get(String path, Object def) {
+        Binary d = this.delegate;
+        if (d != null) {
+            return d.get(path, def);
+        }
+        Object back = this.values.get(path);
+        if (back == null) {
+            back = this.decode(path);
+            this.values.putIfAbsent(path, back == null ? MappedBinary.ABSENT : back);
+        }
+        return back == null || back == MappedBinary.ABSENT ? def : back;
+    }
+
+    /**
+     * Returns whether any value has been set, meaning the file has been fully
+     * decoded into memory
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @return {@code true} if this file has been modified
+     */
+    public boolean isModified() {
+        return this.delegate != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void save() throws IOException {
+        this.save(this.location);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * An unmodified file is copied directly from its mapping, and is not
+     * written at all when saved to its own location
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param target {@inheritDoc}
+     * @throws IOException {@inheritDoc}
+     */
+    @Override
+    public void save(File target) throws IOException {
+        Binary d = this.delegate;
+        if (d != null) {
+            d.save(target);
+            return;
+        }
+        if (target.getAbsoluteFile().equals(this.location.getAbsoluteFile())) {
+            return;
+        }
+        AtomicFile.write(target, temp -> {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer src = this.buf.duplicate();
+                src.rewind();
+                while (src.hasRemaining()) {
+                    out.write(src);
+                }
+            }
+        });
+    }
+
+    /**
+     * Saves the information in memory to the file it was loaded from upon a
+     * background thread
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @see FileDataType#saveAsync(File)
+     * @return A {@link CompletableFuture} which completes once the file has
+     *         been written
+     */
+    public CompletableFuture<Void> saveAsync() {
+        return this.saveAsync(this.location);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * An unmodified file shares its mapping with the snapshot, rather than
+     * being copied
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public FileDataType snapshot() {
+        Binary d = this.delegate;
+        return d != null ? d.snapshot() : new MappedBinary(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Exception getLoadError() {
+        return this.loadError;
+    }
+
+    /**
+     * Decodes the value at the passed path from the mapping
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param path The path to decode
+     * @return The decoded value, or {@code null} if it does not exist
+     */
+    private Object decode(String path) {
+        String[] ladder = Ladders.of(path);
+        try {
+            Section container = this.getContainer(ladder);
+            if (container == null) {
+                return null;
+            }
+            Integer offset = container.entries(this.buf, this.strings).get(ladder[ladder.length - 1]);
+            if (offset == null) {
+                return null;
+            }
+            ByteBuffer b = this.buf.duplicate();
+            b.position(offset);
+            return Binary.readValue(b, this.strings);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+            this.loadError = ex;
+            Debugger.error(ex, "Error decoding '%s' from binary file '%s'", path, this.location.getPath());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the {@link Section} holding the last key of the passed ladder,
+     * indexing any sections along the way
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param ladder The split path to look up
+     * @return The containing {@link Section}, or {@code null} if none exists
+     */
+    private Section getContainer(String... ladder) {
+        Section container = this.root;
+        for (int i = 0; i < ladder.length - 1 && container != null; i++) {
+            container = container.child(ladder[i], this.buf, this.strings);
+        }
+        return container;
+    }
+
+    /**
+     * Decodes the whole file into a {@link Binary}, which handles all further
+     * operations
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @return The {@link Binary} now backing this instance
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized Binary materialize() {
+        if (this.delegate == null) {
+            Object root = null;
+            ByteBuffer b = this.buf.duplicate();
+            b.position(this.root.start);
+            try {
+                root = Binary.readValue(b, this.strings);
+            } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+                this.loadError = ex;
+                Debugger.error(ex, "Error decoding binary file '%s'", this.location.getPath());
+            }
+            this.delegate = new Binary(this.location, root instanceof Map ? (Map<String, Object>) root : new LinkedHashMap<>());
+            this.values.clear();
+        }
+        return this.delegate;
+    }
+
+    /**
+     * A map within the mapped file, whose entries are indexed by the position
+     * of their value upon first use
+     *
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     */
+    private static final class Section {
+
+        private final int start;
+        private final Map<String, Section> children = new ConcurrentHashMap<>();
+        private volatile Map<String, Integer> entries;
+
+        public Section(int start) {
+            this.start = start;
+        }
+
+        /**
+         * Returns the positions of this section's values by key, indexing
+         * them if this is the first use
+         *
+         * @since 0.2.0
+         * @version 0.2.0
+         *
+         * @param buf The mapped file
+         * @param strings The string table of the file
+         * @return The positions of this section's values
+         */
+        public Map<String, Integer> entries(ByteBuffer buf, StringTable strings) {
+            Map<String, Integer> back = this.entries;
+            if (back == null) {
+                ByteBuffer b = buf.duplicate();
+                b.position(this.start);
+                if (b.get() != Binary.MAP) {
+                    throw new IllegalArgumentException("No map found at position " + this.start);
+                }
+                b.getInt();
+                int size = b.getInt();
+                back = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+                try {
+                    for (int i = 0; i < size; i++) {
+                        String key = strings.get(b.getInt());
+                        back.put(key, b.position());
+                        Binary.skipValue(b);
+                    }
+                } catch (IOException ex) {
+                    throw new IllegalArgumentException(ex);
+                }
+                this.entries = back;
+            }
+            return back;
+        }
+
+        /**
+         * Returns the nested section under the passed key
+         *
+         * @since 0.2.0
+         * @version 0.2.0
+         *
+         * @param key The key of the nested map
+         * @param buf The mapped file
+         * @param strings The string table of the file
+         * @return The nested {@link Section}, or {@code null} if the key does
+         *         not exist or is not a map
+         */
+        public Section child(String key, ByteBuffer buf, StringTable strings) {
+            Section back = this.children.get(key);
+            if (back == null) {
+                Integer offset = this.entries(buf, strings).get(key);
+                if (offset == null || buf.get(offset) != Binary.MAP) {
+                    return null;
+                }
+                back = this.children.computeIfAbsent(key, k -> new Section(offset));
+            }
+            return back;
+        }
+
+    }
+
+}
@@ -20,7 +20,13 @@
 package com.codelanx.codelanxlib.data.types;
 
 import com.codelanx.codelanxlib.config.Config;
+import com.codelanx.codelanxlib.data.ConnectionPool;
+import com.codelanx.codelanxlib.data.ReplicaRouter;
 import com.codelanx.codelanxlib.data.SQLDataType;
+import com.codelanx.codelanxlib.data.SQLFunction;
+import com.codelanx.codelanxlib.data.SQLResponse;
+import com.codelanx.codelanxlib.data.SchemaCache;
+import com.codelanx.codelanxlib.data.StatementCache;
 import com.codelanx.codelanxlib.logging.Debugger;
 import com.codelanx.codelanxlib.util.cache.Cache;
 import com.codelanx.codelanxlib.util.Databases;
@@ -28,21 +34,34 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Instantiable MySQL connector
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public class MySQL implements SQLDataType {
 
     private static byte connections = 0;
+    private static final int TRANSACTION_POOL_SIZE = 2;
     private final ConnectionPrefs prefs;
     private boolean errors = true;
     private Connection con = null;
+    private ConnectionPool pool = null;
+    private volatile ConnectionPool transactions = null;
+    private StatementCache statementCache = null;
+    private final SchemaCache schema = new SchemaCache(this::loadSchema);
+    private final ThreadLocal<long[]> lastWrite = ThreadLocal.withInitial(() -> new long[1]);
+    private ReplicaRouter replicas = null;
+    private long readYourWritesNanos = 0;
 
     /**
      * Creates a new {@link MySQL} object for use in working with a database
@@ -81,42 +100,149 @@ public class MySQL implements SQLDataType {
      * finished working with the database for your segment of your code.
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @return The Connection object
      * @throws SQLException If the connection fails to open
      */
     public Connection open() throws SQLException {
-        Properties connectionProps = new Properties();
-        connectionProps.put("user", this.prefs.getUser());
-        connectionProps.put("password", this.prefs.getPass());
-
-        this.con = DriverManager.getConnection("jdbc:mysql://" + this.prefs.getHost() + ":"
-                + this.prefs.getPort() + "/" + this.prefs.getDatabase(), connectionProps);
+        this.con = DriverManager.getConnection(this.prefs.getURL(), this.prefs.getProperties());
+        if (this.statementCache != null) {
+            this.con = this.statementCache.wrap(this.con);
+        }
         Debugger.print("Open MySQL connections: %d", ++connections);
         return this.con;
     }
 
+    /**
+     * Opens a {@link ConnectionPool} to the SQL database instead of a single
+     * connection. Operations made through this {@link SQLDataType} will lease
+     * a connection from the pool for their duration, allowing concurrent
+     * operations. Note that while pooled, {@link MySQL#getConnection()} will
+     * return {@code null}, and connections should instead be obtained through
+     * {@link SQLDataType#lease()}. Make sure to call {@link MySQL#close()}
+     * once finished with the database in order to close the pool
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param settings The {@link ConnectionPool.Settings} to use for the pool
+     * @return The opened {@link ConnectionPool}
+     * @throws SQLException If the initial connections fail to open
+     */
+    public ConnectionPool openPool(ConnectionPool.Settings settings) throws SQLException {
+        this.pool = new ConnectionPool(this.prefs.getURL(), this.prefs.getProperties(), settings);
+        Debugger.print("Opened MySQL connection pool (max size: %d)", settings.getMaxSize());
+        return this.pool;
+    }
+
+    /**
+     * Adds read replicas to this {@link MySQL} instance. Once a replica passes
+     * its first health check, {@link SQLDataType#query(SQLFunction, String, Object...)}
+     * and other read-only operations are routed to it, while updates, batch
+     * updates, operations and transactions always run upon the primary. Reads
+     * fall back to the primary whenever no replica is healthy
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see MySQL#setReadYourWrites(long, TimeUnit)
+     * @param settings The {@link ConnectionPool.Settings} for each replica
+     * @param strategy The {@link ReplicaRouter.Strategy} used to pick a replica
+     * @param maxLagSeconds The maximum replication lag before a replica is
+     *                      taken out of rotation, or 0 to ignore lag
+     * @param replicas The {@link ConnectionPrefs} of each replica
+     * @return The {@link ReplicaRouter} for the replicas
+     */
+    public ReplicaRouter openReplicas(ConnectionPool.Settings settings, ReplicaRouter.Strategy strategy,
+            int maxLagSeconds, ConnectionPrefs... replicas) {
+        return this.openReplicas(settings, strategy, 10, maxLagSeconds, replicas);
+    }
+
+    /**
+     * Adds read replicas to this {@link MySQL} instance, checking their
+     * health at the passed interval
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see MySQL#openReplicas(ConnectionPool.Settings, ReplicaRouter.Strategy, int, ConnectionPrefs...)
+     * @param settings The {@link ConnectionPool.Settings} for each replica
+     * @param strategy The {@link ReplicaRouter.Strategy} used to pick a replica
+     * @param checkIntervalSeconds The time between health checks in seconds
+     * @param maxLagSeconds The maximum replication lag before a replica is
+     *                      taken out of rotation, or 0 to ignore lag
+     * @param replicas The {@link ConnectionPrefs} of each replica
+     * @return The {@link ReplicaRouter} for the replicas
+     */
+    public ReplicaRouter openReplicas(ConnectionPool.Settings settings, ReplicaRouter.Strategy strategy,
+            long checkIntervalSeconds, int maxLagSeconds, ConnectionPrefs... replicas) {
+        if (this.replicas != null) {
+            this.replicas.close();
+        }
+        ReplicaRouter router = new ReplicaRouter(strategy, settings, checkIntervalSeconds, maxLagSeconds);
+        for (ConnectionPrefs replica : replicas) {
+            router.addReplica(replica.getURL(), replica.getProperties());
+        }
+        this.replicas = router;
+        return router;
+    }
+
+    /**
+     * Sets how long reads from a thread are sent to the primary after that
+     * thread leases a connection for writing, so that it reads its own writes
+     * despite replication lag. Note that asynchronous operations run upon
+     * shared {@link com.codelanx.codelanxlib.data.SQLExecutor} threads, and so
+     * should use a transaction where reading their own writes is required.
+     * Disabled by default
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param time The amount of time, or 0 to disable
+     * @param unit The {@link TimeUnit} of the {@code time} parameter
+     */
+    public void setReadYourWrites(long time, TimeUnit unit) {
+        this.readYourWritesNanos = unit.toNanos(time);
+    }
+
+    /**
+     * Returns the {@link ReplicaRouter} in use by this {@link MySQL}
+     * instance, which exposes the health of the replicas
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The {@link ReplicaRouter}, or {@code null} if there are no
+     *         replicas
+     */
+    public ReplicaRouter getReplicas() {
+        return this.replicas;
+    }
+
     /**
      * {@inheritDoc}
+     * <br><br>
+     * This is answered from the {@link SchemaCache} of this instance
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param tableName {@inheritDoc}
      * @return {@inheritDoc}
      */
     @Override
     public boolean checkTable(String tableName) {
-        return 1 == this.query(rs -> { return rs.next() ? rs.getByte(1) : 0; },
-                "SELECT count(*) FROM information_schema.TABLES WHERE (TABLE_SCHEMA = ?) AND (TABLE_NAME = ?)", this.prefs.getDatabase(), tableName).getResponse();
+        return this.schema.hasTable(tableName);
     }
 
     /**
      * {@inheritDoc}
+     * <br><br>
+     * This is answered from the {@link SchemaCache} of this instance
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @param tableName {@inheritDoc}
      * @param columnName {@inheritDoc}
@@ -124,37 +250,88 @@ public class MySQL implements SQLDataType {
      */
     @Override
     public boolean checkColumn(String tableName, String columnName) {
-        return 1 == this.query(rs -> { return rs.next() ? rs.getByte(1) : 0; },
-                "SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND COLUMN_NAME = ?",
-                this.prefs.getDatabase(), tableName, columnName).getResponse();
+        return this.schema.hasColumn(tableName, columnName);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     */
+    @Override
+    public SchemaCache getSchema() {
+        return this.schema;
+    }
+
+    /**
+     * Loads every table and column of the database in a single
+     * {@code information_schema} scan. This is read from the primary, as the
+     * schema of a lagging replica may be out of date
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return An {@link SQLResponse} of each table mapped to its columns
+     */
+    private SQLResponse<Map<String, Set<String>>> loadSchema() {
+        return this.operate(stmt -> {
+            Map<String, Set<String>> back = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    back.computeIfAbsent(rs.getString(1), k -> new HashSet<>()).add(rs.getString(2));
+                }
+            }
+            return back;
+        }, "SELECT TABLE_NAME, COLUMN_NAME FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ?", this.prefs.getDatabase());
     }
 
     /**
      * {@inheritDoc}
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      */
     @Override
     public void close() {
+        if (this.replicas != null) {
+            this.replicas.close();
+            this.replicas = null;
+        }
+        synchronized (this) {
+            if (this.transactions != null) {
+                this.transactions.close();
+                this.transactions = null;
+            }
+        }
+        if (this.pool != null) {
+            this.pool.close();
+            return;
+        }
         SQLDataType.super.close();
         Debugger.print("Open MySQL connections: %d", --connections);
     }
 
     /**
-     * Checks to make sure the connection is active to the MySQL server
+     * Checks to make sure the connection is active to the MySQL server. This
+     * sends a lightweight ping to the server rather than running a query
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @return true if connected, false otherwise
      */
     public boolean checkConnection() {
+        Connection check = null;
         try {
-            ResultSet rs = this.prepare("SELECT count(*) FROM information_schema.SCHEMATA").executeQuery();
-            return rs.first();
+            check = this.lease();
+            return check != null && check.isValid(5);
         } catch (SQLException ex) {
             return false;
+        } finally {
+            this.release(check);
         }
     }
 
@@ -171,6 +348,179 @@ public class MySQL implements SQLDataType {
         return this.con;
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     * @throws SQLException {@inheritDoc}
+     */
+    @Override
+    public Connection lease() throws SQLException {
+        if (this.readYourWritesNanos > 0) {
+            this.lastWrite.get()[0] = System.nanoTime();
+        }
+        return this.pool == null ? this.con : this.pool.borrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * When not pooled, this leases from a small internal pool of up to
+     * {@value #TRANSACTION_POOL_SIZE} connections which is opened upon first
+     * use, as the connection from {@link MySQL#open()} is shared by every
+     * thread. Further transactions wait for one of these connections to be
+     * released
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     * @throws SQLException {@inheritDoc}
+     */
+    @Override
+    public Connection leaseExclusive() throws SQLException {
+        if (this.pool != null) {
+            return this.lease();
+        }
+        if (this.readYourWritesNanos > 0) {
+            this.lastWrite.get()[0] = System.nanoTime();
+        }
+        ConnectionPool tx = this.transactions;
+        if (tx == null) {
+            synchronized (this) {
+                tx = this.transactions;
+                if (tx == null) {
+                    tx = new ConnectionPool(this.prefs.getURL(), this.prefs.getProperties(),
+                            new ConnectionPool.Settings().minIdle(0).maxSize(MySQL.TRANSACTION_POOL_SIZE));
+                    this.transactions = tx;
+                }
+            }
+        }
+        return tx.borrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * If replicas are open, this leases from a healthy replica unless the
+     * calling thread is within its read-your-writes window
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     * @throws SQLException {@inheritDoc}
+     */
+    @Override
+    public Connection leaseRead() throws SQLException {
+        ReplicaRouter router = this.replicas;
+        long written = this.readYourWritesNanos > 0 ? this.lastWrite.get()[0] : 0;
+        if (router != null && (written == 0 || System.nanoTime() - written > this.readYourWritesNanos)) {
+            Connection back = router.borrow();
+            if (back != null) {
+                return back;
+            }
+        }
+        return this.pool == null ? this.con : this.pool.borrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param con {@inheritDoc}
+     */
+    @Override
+    public void release(Connection con) {
+        if (this.pool != null || con != this.con) {
+            Databases.close(con);
+        }
+    }
+
+    /**
+     * Returns {@link Integer#MIN_VALUE}, which instructs the MySQL driver to
+     * stream results row by row instead of reading the entire result into
+     * memory. Note that a streamed connection cannot run other statements
+     * until the stream is closed, which is only a concern when not pooled
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     */
+    @Override
+    public int getStreamingFetchSize() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Enables caching of {@link java.sql.PreparedStatement PreparedStatements}
+     * for the connection made by {@link MySQL#open()}. Must be called before
+     * the connection is opened. The cached statements are closed along with
+     * the connection. For pooled connections, use
+     * {@link ConnectionPool.Settings#statementCacheSize(int)} instead
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param cache The {@link StatementCache} to use, or {@code null} to
+     *              disable caching
+     */
+    public void setStatementCache(StatementCache cache) {
+        this.statementCache = cache;
+    }
+
+    /**
+     * Returns the {@link StatementCache} in use by this {@link MySQL}
+     * instance, if any
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The {@link StatementCache}, or {@code null} if not caching
+     */
+    public StatementCache getStatementCache() {
+        return this.pool != null ? this.pool.getStatementCache() : this.statementCache;
+    }
+
+    /**
+     * Returns the {@link ConnectionPool} in use by this {@link MySQL}
+     * instance, which exposes statistics on the pool's usage
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The {@link ConnectionPool}, or {@code null} if not pooled
+     */
+    public ConnectionPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Returns a new {@link MySQL} instance backed by a
+     * {@link ConnectionPool}. Unlike {@link MySQL#newCache}, connections are
+     * never torn down on an interval, and broken connections are replaced
+     * individually as they are detected
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param prefs The {@link ConnectionPrefs} relevant to the connection
+     * @param settings The {@link ConnectionPool.Settings} to use for the pool
+     * @return A new pooled {@link MySQL} instance
+     * @throws SQLException If the initial connections fail to open
+     */
+    public static MySQL newPool(ConnectionPrefs prefs, ConnectionPool.Settings settings) throws SQLException {
+        MySQL back = new MySQL(prefs);
+        back.openPool(settings);
+        return back;
+    }
+
     /**
      * Returns a new cached MySQL connection, which will automatically renew
      * itself at the specified interval via {@code keepAliveMS}, in
@@ -186,13 +536,36 @@ public class MySQL implements SQLDataType {
      * @return A new self-renewing {@link Cache} object with an instance of this
      */
     public static Cache<MySQL> newCache(ConnectionPrefs prefs, long keepAliveMS) {
+        return MySQL.newCache(prefs, keepAliveMS, null);
+    }
+
+    /**
+     * Returns a new cached MySQL connection, which will automatically renew
+     * itself at the specified interval via {@code keepAliveMS}, in
+     * milliseconds. Each renewed connection shares the passed
+     * {@link StatementCache}, and the statements cached for an old connection
+     * are closed as it is renewed
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @see MySQL#newCache(ConnectionPrefs, long)
+     * @param prefs The {@link ConnectionPrefs} relevant to the connection
+     * @param keepAliveMS The time in milliseconds to keep a connection open
+     * @param statements The {@link StatementCache} to use, or {@code null}
+     * @return A new self-renewing {@link Cache} object with an instance of this
+     */
+    public static Cache<MySQL> newCache(ConnectionPrefs prefs, long keepAliveMS, StatementCache statements) {
         return new Cache<MySQL>(keepAliveMS) {
             @Override
             protected void update() {
-                if (this.getCurrentValue() != null && this.getCurrentValue().checkConnection()) {
-                    this.getCurrentValue().close();
+                //Dead connections are closed too, releasing their cached statements
+                MySQL old = this.getCurrentValue();
+                if (old != null && old.getConnection() != null) {
+                    old.close();
                 }
                 MySQL set = new MySQL(prefs);
+                set.setStatementCache(statements);
                 try {
                     set.setAutoCommit(true);
                     set.open();
@@ -336,6 +709,34 @@ public class MySQL implements SQLDataType {
             return this.port;
         }
 
+        /**
+         * Returns the JDBC url represented by these {@link ConnectionPrefs}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The JDBC connection url
+         */
+        public String getURL() {
+            return "jdbc:mysql://" + this.getHost() + ":" + this.getPort() + "/" + this.getDatabase();
+        }
+
+        /**
+         * Returns the connection {@link Properties} (user and password) for
+         * these {@link ConnectionPrefs}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @return The connection {@link Properties}
+         */
+        public Properties getProperties() {
+            Properties connectionProps = new Properties();
+            connectionProps.put("user", this.getUser());
+            connectionProps.put("password", this.getPass());
+            return connectionProps;
+        }
+
     }
 
 }
\ No newline at end of file
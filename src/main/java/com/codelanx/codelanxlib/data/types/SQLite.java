@@ -19,12 +19,37 @@
  */
 package com.codelanx.codelanxlib.data.types;
 
+import com.codelanx.codelanxlib.data.ConnectionPool;
+import com.codelanx.codelanxlib.data.ParamBinder;
 import com.codelanx.codelanxlib.data.SQLDataType;
+import com.codelanx.codelanxlib.data.SQLFunction;
+import com.codelanx.codelanxlib.data.SQLResponse;
+import com.codelanx.codelanxlib.data.SchemaCache;
+import com.codelanx.codelanxlib.data.StatementCache;
 import com.codelanx.codelanxlib.logging.Debugger;
+import com.codelanx.codelanxlib.util.Databases;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.commons.lang.Validate;
 import org.bukkit.plugin.Plugin;
 
 /**
@@ -32,7 +57,7 @@ import org.bukkit.plugin.Plugin;
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public class SQLite implements SQLDataType {
 
@@ -41,6 +66,13 @@ public class SQLite implements SQLDataType {
     /** The {@link Connection} object */
     protected Connection con = null;
     private boolean errors = true;
+    private StatementCache statementCache = null;
+    private Tuning tuning = null;
+    private ConnectionPool readers = null;
+    private ExecutorService writer = null;
+    private volatile Thread writerThread = null;
+    private String url = null;
+    private final SchemaCache schema = new SchemaCache(this::loadSchema);
 
     /**
      * Opens a connection to the SQLite database. Make sure to call
@@ -114,31 +146,53 @@ public class SQLite implements SQLDataType {
         } catch (ClassNotFoundException ex) {
             Debugger.error(ex, "Error loading SQLite drivers");
         }
-        this.con = DriverManager.getConnection("jdbc:sqlite:" + database.getAbsolutePath());
+        String url = "jdbc:sqlite:" + database.getAbsolutePath();
+        this.url = url;
+        this.con = DriverManager.getConnection(url);
+        if (this.tuning != null) {
+            this.tuning.apply(this.con, false);
+            Tuning tune = this.tuning;
+            this.readers = new ConnectionPool(url, new Properties(), new ConnectionPool.Settings()
+                    .minIdle(1)
+                    .maxSize(tune.readers)
+                    .statementCacheSize(this.statementCache == null ? 0 : this.statementCache.getMaxSize())
+                    .initializer(c -> tune.apply(c, true)));
+            this.writer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "CodelanxLib-SQLite-Writer");
+                t.setDaemon(true);
+                this.writerThread = t;
+                return t;
+            });
+        }
+        if (this.statementCache != null) {
+            this.con = this.statementCache.wrap(this.con);
+        }
         Debugger.print("Open SQLite connections: %d", ++connections);
         return this.con;
     }
 
     /**
-     * Checks if a table exists within the set database
+     * Checks if a table exists within the set database. This is answered from
+     * the {@link SchemaCache} of this instance
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param tableName Name of the table to check for
      * @return true if exists, false otherwise
      */
     @Override
     public boolean checkTable(String tableName) {
-        return 1 == this.query(rs -> { return rs.next() ? rs.getByte(1) : 0; },
-                "SELECT COUNT(*) FROM sqlite_master WHERE type='table' AND name=?", tableName).getResponse();
+        return this.schema.hasTable(tableName);
     }
 
     /**
      * {@inheritDoc}
+     * <br><br>
+     * This is answered from the {@link SchemaCache} of this instance
      * 
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      * 
      * @param tableName {@inheritDoc}
      * @param columnName {@inheritDoc}
@@ -146,8 +200,299 @@ public class SQLite implements SQLDataType {
      */
     @Override
     public boolean checkColumn(String tableName, String columnName) {
-        return 1 == this.query(rs -> { return rs.next() ? rs.getByte(1) : 0; },
-                "SELECT COUNT(*) FROM sqlite_master WHERE type='index' AND name=?", columnName).getResponse();
+        return this.schema.hasColumn(tableName, columnName);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     */
+    @Override
+    public SchemaCache getSchema() {
+        return this.schema;
+    }
+
+    /**
+     * Loads every table from {@code sqlite_master}, and the columns of each
+     * table via {@code PRAGMA table_info}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return An {@link SQLResponse} of each table mapped to its columns
+     */
+    private SQLResponse<Map<String, Set<String>>> loadSchema() {
+        SQLResponse<List<String>> tables = this.query(rs -> {
+            List<String> back = new ArrayList<>();
+            while (rs.next()) {
+                back.add(rs.getString(1));
+            }
+            return back;
+        }, "SELECT name FROM sqlite_master WHERE type='table'");
+        if (tables.getException() != null) {
+            return new SQLResponse<>(tables.getException());
+        }
+        Map<String, Set<String>> back = new HashMap<>();
+        for (String table : tables.getResponse()) {
+            SQLResponse<Set<String>> columns = this.query(rs -> {
+                Set<String> names = new HashSet<>();
+                while (rs.next()) {
+                    names.add(rs.getString("name"));
+                }
+                return names;
+            }, "PRAGMA table_info(\"" + table.replace("\"", "\"\"") + "\")");
+            if (columns.getException() != null) {
+                return new SQLResponse<>(columns.getException());
+            }
+            back.put(table, columns.getResponse());
+        }
+        return new SQLResponse<>(back);
+    }
+
+    /**
+     * Enables caching of {@link java.sql.PreparedStatement PreparedStatements}
+     * for the connection made by {@link SQLite#open(File)}. Must be called
+     * before the connection is opened. The cached statements are closed along
+     * with the connection
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param cache The {@link StatementCache} to use, or {@code null} to
+     *              disable caching
+     */
+    public void setStatementCache(StatementCache cache) {
+        this.statementCache = cache;
+    }
+
+    /**
+     * Returns the {@link StatementCache} in use by this {@link SQLite}
+     * instance, if any
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The {@link StatementCache}, or {@code null} if not caching
+     */
+    public StatementCache getStatementCache() {
+        return this.statementCache;
+    }
+
+    /**
+     * Enables the tuned mode for the connection made by
+     * {@link SQLite#open(File)}, which must be called afterwards. In tuned
+     * mode the database is opened with the pragmas of the passed
+     * {@link Tuning}, reads are served by a pool of read-only connections, and
+     * every update is serialized onto a single writer thread. This avoids
+     * {@code SQLITE_BUSY} errors between plugin threads, while reads continue
+     * in parallel with writes under WAL journaling
+     * <br><br>
+     * The manual transaction methods such as {@link SQLite#setAutoCommit(boolean)}
+     * still act upon the writer connection from the calling thread, and should
+     * not be mixed with concurrent updates
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param tuning The {@link Tuning} to apply, or {@code null} to use the
+     *               default single connection mode
+     */
+    public void setTuning(Tuning tuning) {
+        this.tuning = tuning;
+    }
+
+    /**
+     * Returns the {@link Tuning} in use by this {@link SQLite} instance, if
+     * any
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The {@link Tuning}, or {@code null} if not tuned
+     */
+    public Tuning getTuning() {
+        return this.tuning;
+    }
+
+    /**
+     * Returns the pool of read-only connections used in tuned mode
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The read {@link ConnectionPool}, or {@code null} if not tuned
+     */
+    public ConnectionPool getReadPool() {
+        return this.readers;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     * @throws SQLException {@inheritDoc}
+     */
+    @Override
+    public Connection leaseRead() throws SQLException {
+        return this.readers == null ? this.lease() : this.readers.borrow();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * In tuned mode this is the writer connection, which is only used upon
+     * the writer thread. Otherwise this opens a separate connection which is
+     * closed upon its release, as the connection from {@link SQLite#open(File)}
+     * is shared by every thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     * @throws SQLException {@inheritDoc}
+     */
+    @Override
+    public Connection leaseExclusive() throws SQLException {
+        if (this.writer != null || this.url == null) {
+            return this.lease();
+        }
+        return DriverManager.getConnection(this.url);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param con {@inheritDoc}
+     */
+    @Override
+    public void release(Connection con) {
+        if (con != null && con != this.con) {
+            Databases.close(con);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * In tuned mode, this is run upon the writer thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param query {@inheritDoc}
+     * @param params {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public SQLResponse update(String query, ParamBinder params) {
+        return this.write(() -> SQLDataType.super.update(query, params));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * In tuned mode, this is run upon the writer thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <T> {@inheritDoc}
+     * @param query {@inheritDoc}
+     * @param batchSize {@inheritDoc}
+     * @param params {@inheritDoc}
+     * @param paramMappers {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public <T> SQLResponse batchUpdate(String query, int batchSize, Collection<T> params, Function<T, ?>... paramMappers) {
+        return this.write(() -> SQLDataType.super.batchUpdate(query, batchSize, params, paramMappers));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * In tuned mode, this is run upon the writer thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <R> {@inheritDoc}
+     * @param oper {@inheritDoc}
+     * @param sql {@inheritDoc}
+     * @param params {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <R> SQLResponse<R> operate(SQLFunction<? super PreparedStatement, R> oper, String sql, ParamBinder params) {
+        return this.write(() -> SQLDataType.super.operate(oper, sql, params));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * In tuned mode, the entire transaction is run upon the writer thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <R> {@inheritDoc}
+     * @param maxAttempts {@inheritDoc}
+     * @param oper {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public <R> SQLResponse<R> transaction(int maxAttempts, SQLFunction<? super SQLDataType, R> oper) {
+        return this.write(() -> SQLDataType.super.transaction(maxAttempts, oper));
+    }
+
+    /**
+     * Runs a write operation upon the writer thread and waits for its result.
+     * Runs the operation directly if not in tuned mode, or if already on the
+     * writer thread
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param <R> The type of the operation's result
+     * @param op The write operation
+     * @return The result of the operation
+     */
+    private <R> R write(Supplier<R> op) {
+        if (this.writer == null || Thread.currentThread() == this.writerThread) {
+            return op.get();
+        }
+        Future<R> f = this.writer.submit(op::get);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return f.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException("Error in SQLite write", ex.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     @Override
@@ -161,13 +506,27 @@ public class SQLite implements SQLDataType {
     }
 
     /**
-     * Closes the SQLite connection. Must be open first.
+     * Closes the SQLite connection. Must be open first. In tuned mode, pending
+     * writes are given up to 10 seconds to complete beforehand
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      */
     @Override
     public void close() {
+        if (this.writer != null) {
+            this.writer.shutdown();
+            try {
+                this.writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.writer = null;
+        }
+        if (this.readers != null) {
+            this.readers.close();
+            this.readers = null;
+        }
         SQLDataType.super.close();
         Debugger.print("Open SQLite connections: %d", --connections);
     }
@@ -185,4 +544,140 @@ public class SQLite implements SQLDataType {
         return this.con;
     }
 
+    /**
+     * Pragmas applied to each connection in the tuned mode of {@link SQLite}.
+     * Defaults to WAL journaling, {@code synchronous=NORMAL}, 256MiB of
+     * memory-mapped I/O, a 64MiB page cache, a 5 second busy timeout and 4
+     * read connections
+     * 
+     * @since 0.2.0
+     * @author 1Rogue
+     * @version 0.2.0
+     */
+    public static final class Tuning {
+
+        private String journalMode = "WAL";
+        private String synchronous = "NORMAL";
+        private long mmapSize = 256L * 1024 * 1024;
+        private int cacheSizeKiB = 64 * 1024;
+        private int busyTimeoutMS = 5000;
+        private int readers = 4;
+
+        /**
+         * Sets the journal mode, such as {@code WAL} or {@code DELETE}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param mode The journal mode
+         * @return This {@link Tuning} instance
+         */
+        public Tuning journalMode(String mode) {
+            Validate.notNull(mode, "Journal mode cannot be null");
+            this.journalMode = mode;
+            return this;
+        }
+
+        /**
+         * Sets the synchronous level, such as {@code NORMAL} or {@code FULL}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param level The synchronous level
+         * @return This {@link Tuning} instance
+         */
+        public Tuning synchronous(String level) {
+            Validate.notNull(level, "Synchronous level cannot be null");
+            this.synchronous = level;
+            return this;
+        }
+
+        /**
+         * Sets the number of bytes of the database to memory-map, or 0 to
+         * disable memory-mapped I/O
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param bytes The memory-mapped size in bytes
+         * @return This {@link Tuning} instance
+         */
+        public Tuning mmapSize(long bytes) {
+            Validate.isTrue(bytes >= 0, "mmapSize cannot be negative");
+            this.mmapSize = bytes;
+            return this;
+        }
+
+        /**
+         * Sets the size of the page cache of each connection
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param kibibytes The cache size in KiB
+         * @return This {@link Tuning} instance
+         */
+        public Tuning cacheSize(int kibibytes) {
+            Validate.isTrue(kibibytes > 0, "cacheSize must be greater than 0");
+            this.cacheSizeKiB = kibibytes;
+            return this;
+        }
+
+        /**
+         * Sets how long a connection waits on a locked database before
+         * failing with {@code SQLITE_BUSY}
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param time The amount of time
+         * @param unit The {@link TimeUnit} of the {@code time} parameter
+         * @return This {@link Tuning} instance
+         */
+        public Tuning busyTimeout(long time, TimeUnit unit) {
+            this.busyTimeoutMS = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(time));
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of read connections
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param readers The maximum number of read connections
+         * @return This {@link Tuning} instance
+         */
+        public Tuning readers(int readers) {
+            Validate.isTrue(readers > 0, "readers must be greater than 0");
+            this.readers = readers;
+            return this;
+        }
+
+        /**
+         * Applies these pragmas to a connection
+         * 
+         * @since 0.2.0
+         * @version 0.2.0
+         * 
+         * @param con The {@link Connection} to apply the pragmas to
+         * @param readOnly Whether the connection is only used for reads
+         * @throws SQLException If a pragma could not be applied
+         */
+        private void apply(Connection con, boolean readOnly) throws SQLException {
+            try (Statement stmt = con.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout=" + this.busyTimeoutMS);
+                stmt.execute("PRAGMA journal_mode=" + this.journalMode);
+                stmt.execute("PRAGMA synchronous=" + this.synchronous);
+                stmt.execute("PRAGMA mmap_size=" + this.mmapSize);
+                stmt.execute("PRAGMA cache_size=-" + this.cacheSizeKiB);
+                if (readOnly) {
+                    stmt.execute("PRAGMA query_only=1");
+                }
+            }
+        }
+
+    }
+
 }
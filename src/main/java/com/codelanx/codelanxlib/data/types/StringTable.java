@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.data.types;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The string table of a {@link Binary} file. Only the position of each
+ * string is read up front; strings are decoded upon their first use, and the
+ * same instance is returned for every later use of that index
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ */
+final class StringTable {
+
+    private final ByteBuffer buf;
+    private final int[] offsets;
+    private final String[] decoded;
+
+    /**
+     * Reads the string table at the passed buffer's position, leaving the
+     * buffer positioned directly after it
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param buf The buffer to read from
+     * @throws IOException If the table runs past the end of the buffer
+     */
+    StringTable(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        int count = buf.getInt();
+        if (count < 0) {
+            throw new IOException("Invalid string table size " + count);
+        }
+        this.offsets = new int[count];
+        this.decoded = new String[count];
+        for (int i = 0; i < count; i++) {
+            this.offsets[i] = buf.position();
+            int length = buf.getInt();
+            if (length < 0 || length > buf.remaining()) {
+                throw new IOException("Invalid string length " + length + " at position " + this.offsets[i]);
+            }
+            buf.position(buf.position() + length);
+        }
+    }
+
+    /**
+     * Returns the string at the passed index of the table
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param index The index of the string
+     * @return The decoded string
+     */
+    String get(int index) {
+        String back = this.decoded[index];
+        if (back == null) {
+            ByteBuffer b = this.buf.duplicate();
+            b.position(this.offsets[index]);
+            byte[] raw = new byte[b.getInt()];
+            b.get(raw);
+            back = new String(raw, StandardCharsets.UTF_8);
+            this.decoded[index] = back;
+        }
+        return back;
+    }
+
+}
@@ -20,17 +20,28 @@
 package com.codelanx.codelanxlib.data.types;
 
 import com.codelanx.codelanxlib.data.FileDataType;
+import com.codelanx.codelanxlib.logging.Debugger;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.FileConfigurationOptions;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.configuration.file.YamlConfigurationOptions;
 
 /**
  * Represents a YAML file that is parsed and loaded into memory.
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public class Yaml implements FileDataType {
 
@@ -38,18 +49,45 @@ public class Yaml implements FileDataType {
     protected final File location;
     /** The underlying {@link FileConfiguration} object */
     protected final FileConfiguration yaml;
+    private Exception loadError;
 
     /**
-     * Reads and loads a YAML file into memory.
+     * Reads and loads a YAML file into memory. A missing file is loaded as
+     * empty, as is an unreadable one, whose error is then available from
+     * {@link Yaml#getLoadError()}
      *
      * @since 0.1.0
-     * @version 0.1.0
+     * @version 0.2.0
      *
      * @param location The location of the file to read
      */
     public Yaml(File location) {
         this.location = location;
-        this.yaml = YamlConfiguration.loadConfiguration(this.location);
+        YamlConfiguration yaml = new YamlConfiguration();
+        try {
+            yaml.load(this.location);
+        } catch (FileNotFoundException ex) {
+            //Loaded as empty, as with YamlConfiguration#loadConfiguration
+        } catch (IOException | InvalidConfigurationException ex) {
+            this.loadError = ex;
+            Debugger.error(ex, "Error loading YAML file '%s'", location.getPath());
+            yaml = new YamlConfiguration();
+        }
+        this.yaml = yaml;
+    }
+
+    /**
+     * Wraps an already loaded {@link FileConfiguration}
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param location The location of the file
+     * @param yaml The loaded {@link FileConfiguration}
+     */
+    protected Yaml(File location, FileConfiguration yaml) {
+        this.location = location;
+        this.yaml = yaml;
     }
 
     /**
@@ -136,6 +174,90 @@ public class Yaml implements FileDataType {
         this.yaml.save(target);
     }
 
+    /**
+     * Saves the information in memory to the file it was loaded from upon a
+     * background thread
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @see FileDataType#saveAsync(File)
+     * @return A {@link CompletableFuture} which completes once the file has
+     *         been written
+     */
+    public CompletableFuture<Void> saveAsync() {
+        return this.saveAsync(this.location);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br><br>
+     * The values are copied into a new {@link YamlConfiguration}, which is far
+     * cheaper than serializing them upon the calling thread
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public FileDataType snapshot() {
+        YamlConfiguration copy = new YamlConfiguration();
+        //carry over the header and formatting, so both saves write the same file
+        //the path separator must be set before any paths are copied
+        FileConfigurationOptions from = this.yaml.options();
+        copy.options().header(from.header());
+        copy.options().copyHeader(from.copyHeader());
+        copy.options().pathSeparator(from.pathSeparator());
+        if (from instanceof YamlConfigurationOptions) {
+            copy.options().indent(((YamlConfigurationOptions) from).indent());
+        }
+        this.yaml.getValues(true).forEach((path, value) -> {
+            if (!(value instanceof ConfigurationSection)) {
+                copy.set(path, Yaml.copy(value));
+            } else if (((ConfigurationSection) value).getKeys(false).isEmpty()) {
+                copy.createSection(path);
+            }
+        });
+        return new Yaml(this.location, copy);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Exception getLoadError() {
+        return this.loadError;
+    }
+
+    /**
+     * Copies any mutable collections within a value, so that later changes
+     * to the original do not affect a snapshot
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param value The value to copy
+     * @return The copied value, or the original if it is not a collection
+     */
+    private static Object copy(Object value) {
+        if (value instanceof List) {
+            List<Object> back = new ArrayList<>(((List<?>) value).size());
+            ((List<?>) value).forEach(o -> back.add(Yaml.copy(o)));
+            return back;
+        } else if (value instanceof Map) {
+            Map<Object, Object> back = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> back.put(k, Yaml.copy(v)));
+            return back;
+        }
+        return value;
+    }
+
     /**
      * Returns the underlying {@link FileConfiguration} used in reading the YAML
      * file
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 Codelanx, All Rights Reserved
+ *
+ * This work is licensed under a Creative Commons
+ * Attribution-NonCommercial-NoDerivs 3.0 Unported License.
+ *
+ * This program is protected software: You are free to distrubute your
+ * own use of this software under the terms of the Creative Commons BY-NC-ND
+ * license as published by Creative Commons in the year 2015 or as published
+ * by a later date. You may not provide the source files or provide a means
+ * of running the software outside of those licensed to use it.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *
+ * You should have received a copy of the Creative Commons BY-NC-ND license
+ * long with this program. If not, see <https://creativecommons.org/licenses/>.
+ */
+package com.codelanx.codelanxlib.events;
+
+import com.codelanx.codelanxlib.config.PluginFile;
+import com.codelanx.codelanxlib.data.FileDataType;
+import java.io.File;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Event fired upon Bukkit's main thread after a watched {@link PluginFile}
+ * has been changed on disk and its new contents swapped into memory
+ *
+ * @since 0.2.0
+ * @author 1Rogue
+ * @version 0.2.0
+ * 
+ * @see com.codelanx.codelanxlib.config.FileWatcher
+ */
+public class FileReloadEvent extends Event {
+
+    /** {@link HandlerList} for this event */
+    protected static final HandlerList handlers = new HandlerList();
+    /** The {@link Plugin} owning the file */
+    private final Plugin plugin;
+    /** The {@link PluginFile} class which was reloaded */
+    private final Class<? extends PluginFile> type;
+    /** The reloaded file */
+    private final File file;
+    /** The newly loaded data */
+    private final FileDataType data;
+
+    /**
+     * Constructor. Assigns the passed values to fields
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param plugin The {@link Plugin} owning the file
+     * @param type The {@link PluginFile} class which was reloaded
+     * @param file The reloaded file
+     * @param data The newly loaded {@link FileDataType}
+     */
+    public FileReloadEvent(Plugin plugin, Class<? extends PluginFile> type, File file, FileDataType data) {
+        this.plugin = plugin;
+        this.type = type;
+        this.file = file;
+        this.data = data;
+    }
+
+    /**
+     * Returns the {@link Plugin} which owns the reloaded file
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The relevant {@link Plugin}
+     */
+    public Plugin getPlugin() {
+        return this.plugin;
+    }
+
+    /**
+     * Returns the {@link PluginFile} class whose data was reloaded
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The reloaded {@link PluginFile} class
+     */
+    public Class<? extends PluginFile> getFileType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the file which was reloaded
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The reloaded {@link File}
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns the newly loaded data, which is now in use
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The new {@link FileDataType}
+     */
+    public FileDataType getData() {
+        return this.data;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return {@inheritDoc} 
+     */
+    @Override
+    public HandlerList getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Returns the {@link HandlerList} that Bukkit uses to register plugins
+     * for events
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @return The internal {@link HandlerList} for this event
+     */
+    public static HandlerList getHandlerList() {
+        return handlers;
+    }
+}
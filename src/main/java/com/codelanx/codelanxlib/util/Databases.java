@@ -23,16 +23,19 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.regex.Pattern;
 
 /**
  * Provides façade methods for making SQL interactions less verbose
  *
  * @since 0.1.0
  * @author 1Rogue
- * @version 0.1.0
+ * @version 0.2.0
  */
 public class Databases {
 
+    private static final Pattern SCHEMA_CHANGE = Pattern.compile("^\\s*(?:CREATE|ALTER|DROP|RENAME)\\s", Pattern.CASE_INSENSITIVE);
+
     /**
      * Formats an {@link SQLException} to be output with more information about
      * the error
@@ -47,6 +50,122 @@ public class Databases {
         return String.format("(%d) %s", ex.getErrorCode(), ex.getMessage());
     }
 
+    /**
+     * Sums the update counts returned from {@link Statement#executeBatch()}.
+     * Statements which report {@link Statement#SUCCESS_NO_INFO} are counted
+     * as a single row, and failed statements are not counted
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param counts The update counts from a batch execution
+     * @return The total number of updated rows
+     */
+    public static int sumUpdates(int[] counts) {
+        int back = 0;
+        for (int count : counts) {
+            if (count == Statement.SUCCESS_NO_INFO) {
+                back++;
+            } else if (count > 0) {
+                back += count;
+            }
+        }
+        return back;
+    }
+
+    /**
+     * Determines whether a SQL statement changes the schema of a database,
+     * that is whether it begins with {@code CREATE}, {@code ALTER},
+     * {@code DROP} or {@code RENAME}
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param sql The SQL statement
+     * @return {@code true} if the statement is a schema change
+     */
+    public static boolean isSchemaChange(String sql) {
+        return sql != null && Databases.SCHEMA_CHANGE.matcher(sql).find();
+    }
+
+    /**
+     * Determines whether an {@link SQLException}, or any exception chained to
+     * it, was caused by transient lock contention which is worth retrying.
+     * This covers MySQL deadlocks (1213) and lock wait timeouts (1205),
+     * serialization failures (SQLState {@code 40001}), and SQLite's
+     * {@code SQLITE_BUSY} and {@code SQLITE_LOCKED} errors
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param ex The relevant {@link SQLException}
+     * @return {@code true} if the failed operation can be retried
+     */
+    public static boolean isRetryable(SQLException ex) {
+        for (Throwable t = ex; t != null; t = t instanceof SQLException && ((SQLException) t).getNextException() != null
+                ? ((SQLException) t).getNextException() : t.getCause()) {
+            if (!(t instanceof SQLException)) {
+                continue;
+            }
+            SQLException sql = (SQLException) t;
+            switch (sql.getErrorCode()) {
+                case 1205:
+                case 1213:
+                    return true;
+            }
+            if ("40001".equals(sql.getSQLState())) {
+                return true;
+            }
+            String msg = sql.getMessage();
+            if (msg != null && (msg.contains("SQLITE_BUSY") || msg.contains("SQLITE_LOCKED"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rolls back the current transaction of a passed {@link Connection}. Any
+     * {@link SQLException} that occurs is chained onto the passed cause, or
+     * swallowed if there is none. Can handle null parameters
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param con The {@link Connection} to roll back
+     * @param cause The exception which caused the rollback, or {@code null}
+     */
+    public static void rollback(Connection con, SQLException cause) {
+        if (con == null) {
+            return;
+        }
+        try {
+            con.rollback();
+        } catch (SQLException ex) {
+            if (cause != null) {
+                cause.setNextException(ex);
+            }
+        }
+    }
+
+    /**
+     * Re-enables auto-commit upon a passed {@link Connection}, and swallows any
+     * {@link SQLException} that occurs. Can handle null parameters
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param con The {@link Connection} to restore
+     */
+    public static void restoreAutoCommit(Connection con) {
+        if (con == null) {
+            return;
+        }
+        try {
+            con.setAutoCommit(true);
+        } catch (SQLException ex) {}
+    }
+
     /**
      * Closes a passed {@link Statement} object and swallows any
      * {@link SQLException} that occurs. Can handle null parameters
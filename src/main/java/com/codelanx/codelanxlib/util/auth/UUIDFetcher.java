@@ -308,6 +308,30 @@ public class UUIDFetcher implements Callable<Map<String, UUID>> {
         return byteBuffer.array();
     }
 
+    /**
+     * Writes a {@link UUID} into an existing byte array, in the same layout as
+     * {@link UUIDFetcher#toBytes(UUID)}. Useful for reusing a buffer rather
+     * than allocating a new array for each conversion
+     * 
+     * @since 0.2.0
+     * @version 0.2.0
+     * 
+     * @param uuid The {@link UUID} to convert
+     * @param dest The byte array to write to, with a length of at least 16
+     * @return The passed byte array
+     * @throws IllegalArgumentException if the array length is less than 16
+     */
+    public static byte[] toBytes(UUID uuid, byte[] dest) {
+        Validate.isTrue(dest.length >= 16, "Illegal byte array length: ", dest.length);
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            dest[i] = (byte) (most >>> (56 - i * 8));
+            dest[i + 8] = (byte) (least >>> (56 - i * 8));
+        }
+        return dest;
+    }
+
     /**
      * Returns a {@link UUID} from a byte array
      * 
@@ -476,6 +476,40 @@ public class ExpiringMap<K, V> implements ConcurrentMap<K, V> {
         }
     }
 
+    /**
+     * Puts {@code value} in the map for {@code key} with a specific
+     * {@link ExpirationPolicy} and expiration time, unless an entry already
+     * exists for the {@code key}. Requires that variable expiration be
+     * enabled.
+     *
+     * @since 0.2.0
+     * @version 0.2.0
+     *
+     * @param key Key to put value for
+     * @param value Value to put for key
+     * @param expirationPolicy The {@link ExpirationPolicy} for this entry
+     * @param duration The duration before this entry expires
+     * @param timeUnit The unit of time for this {@code duration}
+     * @return The existing value, or {@code null} if the value was put
+     * @throws UnsupportedOperationException If variable expiration is not
+     * enabled
+     */
+    public V putIfAbsent(K key, V value, ExpirationPolicy expirationPolicy, long duration, TimeUnit timeUnit) {
+        Exceptions.unsupportedOperation(this.variableExpiration, "Variable expiration is not enabled");
+        Validate.notNull(key);
+        Validate.notNull(timeUnit);
+        writeLock.lock();
+        try {
+            if (!entries.containsKey(key)) {
+                return putInternal(key, value, expirationPolicy, TimeUnit.NANOSECONDS.convert(duration, timeUnit));
+            } else {
+                return entries.get(key).getValue();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     @Override
     public V remove(Object key) {
         ExpiringEntry<K, V> entry = null;